@@ -0,0 +1,262 @@
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import javax.imageio.ImageIO;
+
+/**
+ * Benchmark mikro untuk tahap-tahap kompresi: setiap metode error, pembangunan
+ * quadtree, normalizeBlock, dan encode output. Tidak butuh library luar.
+ * Setiap benchmark dipanaskan dulu (warmup) agar JIT selesai, lalu diukur
+ * beberapa iterasi dengan durasi tetap. Hasilnya waktu per operasi (rata-rata
+ * dan simpangan baku antar iterasi) dan byte yang dialokasikan per operasi.
+ *
+ * Kompilasi dan jalankan dari root proyek:
+ *   javac -d bin src/*.java bench/*.java
+ *   java -cp bin QuadTreeBenchmark [--sizes 256,1024] [--blocks 4,16] [--thresholds 10,50]
+ *        [--contents flat,gradient,noise,checkerboard,test] [--methods 1,2,3,4]
+ *        [--warmup N] [--iterations N] [--time ms] [--filter teks] [--test-dir test]
+ */
+public class QuadTreeBenchmark {
+    /**
+     * Satu operasi yang diukur. Nilai kembalian dikumpulkan ke sink agar
+     * JIT tidak bisa membuang pekerjaannya
+     */
+    private interface Operation {
+        long run() throws IOException;
+    }
+    
+    private static volatile long sink;
+    
+    private final int warmupIterations;
+    private final int measureIterations;
+    private final long iterationNanos;
+    private final String filter;
+    private final com.sun.management.ThreadMXBean allocationBean;
+    
+    public QuadTreeBenchmark(int warmupIterations, int measureIterations, long iterationMillis, String filter) {
+        this.warmupIterations = warmupIterations;
+        this.measureIterations = Math.max(1, measureIterations);
+        this.iterationNanos = iterationMillis * 1_000_000;
+        this.filter = filter;
+        
+        // Profil alokasi memakai penghitung byte per thread dari HotSpot jika tersedia
+        com.sun.management.ThreadMXBean bean = null;
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean sunBean
+                && sunBean.isThreadAllocatedMemorySupported()) {
+            sunBean.setThreadAllocatedMemoryEnabled(true);
+            bean = sunBean;
+        }
+        this.allocationBean = bean;
+    }
+    
+    /**
+     * Menjalankan semua benchmark untuk satu gambar
+     */
+    public void runImage(String content, BufferedImage image, int[] methods, int[] blocks, double[] thresholds)
+            throws IOException {
+        String imageLabel = content + " " + image.getWidth() + "x" + image.getHeight();
+        PixelBuffer pixels = PixelBuffer.fromImage(image);
+        IntegralImage integralImage = new IntegralImage(pixels);
+        
+        // Metode error: satu operasi = error semua blok berukuran block x block yang menutupi gambar
+        for (int method : methods) {
+            ErrorMeasurement measurement = new ErrorMeasurementImpl(method, integralImage);
+            for (int block : blocks) {
+                measure("error." + methodName(method), imageLabel + " block=" + block, () -> {
+                    double total = 0;
+                    for (int y = 0; y < pixels.getHeight(); y += block) {
+                        for (int x = 0; x < pixels.getWidth(); x += block) {
+                            total += measurement.calculateError(pixels, x, y,
+                                Math.min(block, pixels.getWidth() - x), Math.min(block, pixels.getHeight() - y));
+                        }
+                    }
+                    return (long) total;
+                });
+            }
+        }
+        
+        // Build, render, dan encode untuk setiap kombinasi parameter kompresi
+        for (int method : methods) {
+            for (int block : blocks) {
+                for (double threshold : thresholds) {
+                    String params = imageLabel + " " + methodName(method) + " block=" + block + " t=" + threshold;
+                    QuadTreeCompression compressor = new QuadTreeCompression(image, null, method, threshold, block);
+                    
+                    measure("build", params, () -> {
+                        compressor.buildTree();
+                        return compressor.getRootNode().getWidth();
+                    });
+                    
+                    compressor.compress();
+                    QuadTreeNode root = compressor.getRootNode();
+                    BufferedImage target = new BufferedImage(image.getWidth(), image.getHeight(), image.getType());
+                    measure("normalizeBlock", params, () -> {
+                        ImageProcessor.normalizeBlock(target, root);
+                        return target.getRGB(0, 0);
+                    });
+                    
+                    // Jalur encode yang dipakai printStatistics untuk mengukur ukuran hasil
+                    BufferedImage compressed = compressor.getCompressedImage();
+                    measure("encode.png", params, () -> {
+                        ByteArrayOutputStream output = new ByteArrayOutputStream();
+                        ImageIO.write(compressed, "png", output);
+                        return output.size();
+                    });
+                    measure("encode.qtc", params, () -> {
+                        ByteArrayOutputStream output = new ByteArrayOutputStream();
+                        compressor.writeNativeFormat(output);
+                        return output.size();
+                    });
+                }
+            }
+        }
+    }
+    
+    private void measure(String name, String params, Operation operation) throws IOException {
+        if (filter != null && !name.contains(filter)) {
+            return;
+        }
+        
+        for (int i = 0; i < warmupIterations; i++) {
+            runIteration(operation);
+        }
+        
+        double[] nanosPerOp = new double[measureIterations];
+        long allocated = 0;
+        long operations = 0;
+        for (int i = 0; i < measureIterations; i++) {
+            long allocatedBefore = allocatedBytes();
+            long startTime = System.nanoTime();
+            long count = runIteration(operation);
+            nanosPerOp[i] = (double) (System.nanoTime() - startTime) / count;
+            allocated += allocatedBytes() - allocatedBefore;
+            operations += count;
+        }
+        
+        double mean = Arrays.stream(nanosPerOp).average().orElse(0);
+        double variance = Arrays.stream(nanosPerOp).map(v -> (v - mean) * (v - mean)).sum() / measureIterations;
+        String allocation = allocationBean != null ? String.format(Locale.ROOT, "%14d B/op", allocated / operations) : "";
+        System.out.println(String.format(Locale.ROOT, "%-16s %-52s %12.1f +- %9.1f us/op%s",
+            name, params, mean / 1000, Math.sqrt(variance) / 1000, allocation));
+    }
+    
+    /**
+     * Mengulang operasi sampai durasi satu iterasi habis, mengembalikan jumlah operasi
+     */
+    private long runIteration(Operation operation) throws IOException {
+        long startTime = System.nanoTime();
+        long count = 0;
+        long result = 0;
+        do {
+            result += operation.run();
+            count++;
+        } while (System.nanoTime() - startTime < iterationNanos);
+        sink += result;
+        return count;
+    }
+    
+    private long allocatedBytes() {
+        return allocationBean != null ? allocationBean.getThreadAllocatedBytes(Thread.currentThread().getId()) : 0;
+    }
+    
+    private static String methodName(int method) {
+        return switch (method) {
+            case ErrorMeasurementImpl.VARIANCE -> "VARIANCE";
+            case ErrorMeasurementImpl.MEAN_ABSOLUTE_DEVIATION -> "MAD";
+            case ErrorMeasurementImpl.MAX_PIXEL_DIFFERENCE -> "MPD";
+            case ErrorMeasurementImpl.ENTROPY -> "ENTROPY";
+            default -> "METHOD" + method;
+        };
+    }
+    
+    /**
+     * Membuat gambar sintetis: flat, gradient, noise, atau checkerboard
+     */
+    public static BufferedImage syntheticImage(String content, int size) {
+        BufferedImage image = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(42);
+        int[] row = new int[size];
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                row[x] = switch (content) {
+                    case "flat" -> 0x4080C0;
+                    case "gradient" -> (x * 255 / size) << 16 | (y * 255 / size) << 8 | ((x + y) * 127 / size);
+                    case "noise" -> random.nextInt(1 << 24);
+                    case "checkerboard" -> ((x / 8 + y / 8) & 1) == 0 ? 0xFFFFFF : 0x000000;
+                    default -> throw new IllegalArgumentException("Konten tidak dikenal: " + content);
+                };
+            }
+            image.setRGB(0, y, size, 1, row, 0, size);
+        }
+        return image;
+    }
+    
+    public static void main(String[] args) throws IOException {
+        int[] sizes = {512};
+        int[] blocks = {4};
+        double[] thresholds = {10};
+        int[] methods = {1, 2, 3, 4};
+        String[] contents = {"flat", "gradient", "noise", "checkerboard", "test"};
+        int warmup = 3, iterations = 5;
+        long iterationMillis = 200;
+        String filter = null;
+        File testDirectory = new File("test");
+        
+        for (int i = 0; i < args.length - 1; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--sizes" -> sizes = Arrays.stream(value.split(",")).mapToInt(Integer::parseInt).toArray();
+                case "--blocks" -> blocks = Arrays.stream(value.split(",")).mapToInt(Integer::parseInt).toArray();
+                case "--thresholds" -> thresholds = Arrays.stream(value.split(",")).mapToDouble(Double::parseDouble).toArray();
+                case "--methods" -> methods = Arrays.stream(value.split(",")).mapToInt(Integer::parseInt).toArray();
+                case "--contents" -> contents = value.split(",");
+                case "--warmup" -> warmup = Integer.parseInt(value);
+                case "--iterations" -> iterations = Integer.parseInt(value);
+                case "--time" -> iterationMillis = Long.parseLong(value);
+                case "--filter" -> filter = value;
+                case "--test-dir" -> testDirectory = new File(value);
+                default -> System.out.println("Warning: opsi tidak dikenal diabaikan: " + args[i]);
+            }
+        }
+        
+        QuadTreeBenchmark benchmark = new QuadTreeBenchmark(warmup, iterations, iterationMillis, filter);
+        if (benchmark.allocationBean == null) {
+            System.out.println("Warning: JVM tidak mendukung profil alokasi per thread");
+        }
+        System.out.println("Kernel piksel: " + PixelKernels.INSTANCE.name());
+        
+        for (String content : contents) {
+            if (content.equals("test")) {
+                // Gambar asli di folder test, hasil kompresi (*After) dilewati
+                File[] files = testDirectory.listFiles();
+                List<File> images = new ArrayList<>();
+                if (files != null) {
+                    for (File file : files) {
+                        String name = file.getName();
+                        if (file.isFile() && !name.substring(0, Math.max(0, name.lastIndexOf('.'))).endsWith("After")) {
+                            images.add(file);
+                        }
+                    }
+                }
+                images.sort(null);
+                for (File file : images) {
+                    BufferedImage image = ImageIO.read(file);
+                    if (image != null) {
+                        benchmark.runImage(file.getName(), image, methods, blocks, thresholds);
+                    }
+                }
+            } else {
+                for (int size : sizes) {
+                    benchmark.runImage(content, syntheticImage(content, size), methods, blocks, thresholds);
+                }
+            }
+        }
+    }
+}
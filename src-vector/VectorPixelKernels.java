@@ -0,0 +1,184 @@
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Implementasi PixelKernels dengan Vector API (jdk.incubator.vector).
+ * Dikompilasi terpisah dari src/ karena butuh modul incubator:
+ *   javac --add-modules jdk.incubator.vector -cp bin -d bin src-vector/*.java
+ * dan dipakai jika JVM dijalankan dengan --add-modules jdk.incubator.vector.
+ *
+ * Byte tanpa tanda diperlebar ke int untuk penjumlahan. Akumulator int
+ * dipindahkan ke long setiap CHUNK piksel agar tidak overflow. Min/max dihitung
+ * langsung pada byte dengan bit tanda dibalik, sehingga urutan unsigned menjadi
+ * urutan signed. Sisa baris yang kurang dari satu vektor diproses scalar.
+ * Metode publik sengaja kecil agar JIT meng-inline-nya ke loop pemanggil,
+ * baris yang lebih pendek dari satu vektor tidak pernah masuk ke loop vektor
+ */
+public class VectorPixelKernels implements PixelKernels {
+    private static final VectorSpecies<Integer> INT = IntVector.SPECIES_PREFERRED;
+    
+    // Byte dengan jumlah lane sama dengan INT, untuk diperlebar ke int
+    private static final VectorSpecies<Byte> NARROW =
+        VectorSpecies.of(byte.class, VectorShape.forBitSize(INT.length() * Byte.SIZE));
+    
+    // Byte selebar register untuk min/max
+    private static final VectorSpecies<Byte> WIDE = ByteVector.SPECIES_PREFERRED;
+    
+    // Piksel per akumulasi int: CHUNK * 3 * 255^2 masih di bawah Integer.MAX_VALUE
+    private static final int CHUNK = 8192;
+    
+    private static final byte SIGN = (byte) 0x80;
+    
+    private final ScalarPixelKernels scalar = new ScalarPixelKernels();
+    
+    public VectorPixelKernels() {
+        if (INT.length() < 4) {
+            throw new UnsupportedOperationException("Vektor terlalu sempit: " + INT);
+        }
+    }
+    
+    private static IntVector widen(byte[] plane, int index) {
+        return ((IntVector) ByteVector.fromArray(NARROW, plane, index).convertShape(VectorOperators.B2I, INT, 0))
+            .lanewise(VectorOperators.AND, 0xFF);
+    }
+    
+    @Override
+    public void sums(byte[] red, byte[] green, byte[] blue, int offset, int length, long[] sums) {
+        int vectorEnd = offset + length / INT.length() * INT.length();
+        if (vectorEnd > offset) {
+            sumsVector(red, green, blue, offset, vectorEnd, sums);
+        }
+        scalar.sums(red, green, blue, vectorEnd, offset + length - vectorEnd, sums);
+    }
+    
+    private static void sumsVector(byte[] red, byte[] green, byte[] blue, int offset, int end, long[] sums) {
+        int i = offset;
+        while (i < end) {
+            int bound = i + Math.min(CHUNK, end - i);
+            IntVector sumRed = IntVector.zero(INT);
+            IntVector sumGreen = IntVector.zero(INT);
+            IntVector sumBlue = IntVector.zero(INT);
+            IntVector sumSquares = IntVector.zero(INT);
+            
+            for (; i < bound; i += INT.length()) {
+                IntVector r = widen(red, i);
+                IntVector g = widen(green, i);
+                IntVector b = widen(blue, i);
+                
+                sumRed = sumRed.add(r);
+                sumGreen = sumGreen.add(g);
+                sumBlue = sumBlue.add(b);
+                sumSquares = sumSquares.add(r.mul(r)).add(g.mul(g)).add(b.mul(b));
+            }
+            
+            sums[0] += sumRed.reduceLanes(VectorOperators.ADD);
+            sums[1] += sumGreen.reduceLanes(VectorOperators.ADD);
+            sums[2] += sumBlue.reduceLanes(VectorOperators.ADD);
+            sums[3] += sumSquares.reduceLanes(VectorOperators.ADD);
+        }
+    }
+    
+    @Override
+    public long absoluteDeviation(byte[] red, byte[] green, byte[] blue, int offset, int length, long[] sums) {
+        int vectorEnd = offset + length / INT.length() * INT.length();
+        long deviation = scalar.absoluteDeviation(red, green, blue, vectorEnd, offset + length - vectorEnd, sums);
+        if (vectorEnd > offset) {
+            deviation += absoluteDeviation(red, offset, vectorEnd, sums[3], sums[0])
+                       + absoluteDeviation(green, offset, vectorEnd, sums[3], sums[1])
+                       + absoluteDeviation(blue, offset, vectorEnd, sums[3], sums[2]);
+        }
+        return deviation;
+    }
+    
+    /**
+     * Deviasi satu kanal untuk [offset, end), panjangnya kelipatan jumlah lane.
+     * Dengan tau = ceil(sum / n), n * c >= sum tepat saat c >= tau, sehingga
+     * sum |n * c - sum| = n * (sumHi - sumLo) - sum * (countHi - countLo).
+     * Cukup jumlah dan cacah piksel di atas tau, tanpa perkalian 64-bit per lane
+     */
+    private static long absoluteDeviation(byte[] plane, int offset, int end, long n, long sum) {
+        int i = offset;
+        int lanes = INT.length();
+        int tau = (int) Math.min(256, Math.max(0, (sum + n - 1) / n));
+        
+        long sumAll = 0, sumHigh = 0, countHigh = 0;
+        IntVector one = IntVector.broadcast(INT, 1);
+        
+        while (i < end) {
+            int bound = i + Math.min(CHUNK, end - i);
+            IntVector all = IntVector.zero(INT);
+            IntVector high = IntVector.zero(INT);
+            IntVector highCount = IntVector.zero(INT);
+            
+            for (; i < bound; i += lanes) {
+                IntVector c = widen(plane, i);
+                VectorMask<Integer> above = c.compare(VectorOperators.GE, tau);
+                all = all.add(c);
+                high = high.add(c, above);
+                highCount = highCount.add(one, above);
+            }
+            
+            sumAll += all.reduceLanes(VectorOperators.ADD);
+            sumHigh += high.reduceLanes(VectorOperators.ADD);
+            countHigh += highCount.reduceLanes(VectorOperators.ADD);
+        }
+        
+        long sumLow = sumAll - sumHigh;
+        long countLow = (end - offset) - countHigh;
+        return n * (sumHigh - sumLow) - sum * (countHigh - countLow);
+    }
+    
+    @Override
+    public void minMax(byte[] red, byte[] green, byte[] blue, int offset, int length, int[] range) {
+        // Baris pendek langsung scalar, metode ini dibuat kecil agar bisa di-inline
+        int vectorEnd = offset + length / WIDE.length() * WIDE.length();
+        if (vectorEnd > offset) {
+            minMaxVector(red, green, blue, offset, vectorEnd, range);
+        }
+        scalar.minMax(red, green, blue, vectorEnd, offset + length - vectorEnd, range);
+    }
+    
+    private static void minMaxVector(byte[] red, byte[] green, byte[] blue, int offset, int end, int[] range) {
+        ByteVector minRed = ByteVector.broadcast(WIDE, Byte.MAX_VALUE);
+        ByteVector minGreen = minRed, minBlue = minRed;
+        ByteVector maxRed = ByteVector.broadcast(WIDE, Byte.MIN_VALUE);
+        ByteVector maxGreen = maxRed, maxBlue = maxRed;
+        
+        for (int i = offset; i < end; i += WIDE.length()) {
+            ByteVector r = ByteVector.fromArray(WIDE, red, i).lanewise(VectorOperators.XOR, SIGN);
+            ByteVector g = ByteVector.fromArray(WIDE, green, i).lanewise(VectorOperators.XOR, SIGN);
+            ByteVector b = ByteVector.fromArray(WIDE, blue, i).lanewise(VectorOperators.XOR, SIGN);
+            
+            minRed = minRed.min(r);
+            minGreen = minGreen.min(g);
+            minBlue = minBlue.min(b);
+            
+            maxRed = maxRed.max(r);
+            maxGreen = maxGreen.max(g);
+            maxBlue = maxBlue.max(b);
+        }
+        
+        range[0] = Math.min(range[0], unsigned(minRed.reduceLanes(VectorOperators.MIN)));
+        range[1] = Math.min(range[1], unsigned(minGreen.reduceLanes(VectorOperators.MIN)));
+        range[2] = Math.min(range[2], unsigned(minBlue.reduceLanes(VectorOperators.MIN)));
+        range[3] = Math.max(range[3], unsigned(maxRed.reduceLanes(VectorOperators.MAX)));
+        range[4] = Math.max(range[4], unsigned(maxGreen.reduceLanes(VectorOperators.MAX)));
+        range[5] = Math.max(range[5], unsigned(maxBlue.reduceLanes(VectorOperators.MAX)));
+    }
+    
+    /**
+     * Mengembalikan byte yang bit tandanya dibalik ke nilai 0-255
+     */
+    private static int unsigned(byte flipped) {
+        return (flipped ^ SIGN) & 0xFF;
+    }
+    
+    @Override
+    public String name() {
+        return "vector (" + INT.vectorBitSize() + "-bit)";
+    }
+}
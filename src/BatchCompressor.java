@@ -0,0 +1,425 @@
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.imageio.ImageIO;
+
+/**
+ * Mode batch tanpa prompt untuk mengompresi banyak gambar sekaligus.
+ *
+ * Pekerjaan dibagi menjadi tiga tahap pipeline dengan thread pool masing-masing:
+ * decode (ImageIO.read), build (quadtree dan render), dan encode (tulis file).
+ * Antar tahap dipakai antrian berkapasitas terbatas, sehingga I/O disk berjalan
+ * bersamaan dengan kerja CPU tanpa menumpuk terlalu banyak gambar di memori
+ */
+public class BatchCompressor {
+    private static final String[] IMAGE_EXTENSIONS = {"png", "jpg", "jpeg", "bmp", "gif"};
+    
+    /**
+     * Gambar hasil decode yang menunggu tahap build. DECODED_END menandai akhir antrian
+     */
+    private record Decoded(File source, BufferedImage image) {}
+    
+    /**
+     * Hanya yang dibutuhkan tahap encode, tanpa piksel, integral image, dan gambar
+     * asli milik kompresor, sehingga kapasitas antrian benar-benar membatasi memori.
+     * encoded berisi hasil dari cache, rendered hanya ada untuk output raster yang
+     * belum ada di cache, dan tree hanya untuk .qtc atau thumbnail. outputType adalah
+     * tipe gambar hasil untuk kunci cache hasil encode. BUILT_END
+     * menandai akhir antrian
+     */
+    private record Built(File source, long pixelCount, CompactQuadTree tree, BufferedImage rendered,
+                         byte[] encoded, String cacheKey, int outputType) {}
+    
+    private static final Decoded DECODED_END = new Decoded(null, null);
+    private static final Built BUILT_END = new Built(null, 0, null, null, null, null, 0);
+    
+    private final List<File> inputs;
+    private final File outputDirectory;
+    private final String format;
+    
+    private int errorMethod = ErrorMeasurementImpl.VARIANCE;
+    private double threshold = 10;
+    private int minBlockSize = 4;
+    private int decodeThreads = 2;
+    private int buildThreads = Runtime.getRuntime().availableProcessors();
+    private int encodeThreads = 2;
+    private int queueCapacity = 2 * buildThreads;
+    
+    // Cache hasil untuk gambar dengan piksel yang sama, null jika tidak dipakai
+    private ResultCache resultCache;
+    
+    // Sisi terpanjang thumbnail yang ditulis di samping setiap output
+    private int[] thumbnailSizes = new int[0];
+    
+    private final AtomicInteger nextInput = new AtomicInteger();
+    private final AtomicInteger completed = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final AtomicLong totalPixels = new AtomicLong();
+    
+    /**
+     * @param format Ekstensi output (png, jpg, bmp, qtc), atau null untuk memakai ekstensi file asal
+     */
+    public BatchCompressor(List<File> inputs, File outputDirectory, String format) {
+        this.inputs = inputs;
+        this.outputDirectory = outputDirectory;
+        this.format = format;
+    }
+    
+    public void setErrorMethod(int errorMethod) {
+        this.errorMethod = errorMethod;
+    }
+    
+    public void setThreshold(double threshold) {
+        this.threshold = threshold;
+    }
+    
+    public void setMinBlockSize(int minBlockSize) {
+        this.minBlockSize = minBlockSize;
+    }
+    
+    /**
+     * Mengatur jumlah thread tiap tahap pipeline
+     */
+    public void setThreads(int decode, int build, int encode) {
+        this.decodeThreads = Math.max(1, decode);
+        this.buildThreads = Math.max(1, build);
+        this.encodeThreads = Math.max(1, encode);
+    }
+    
+    /**
+     * Kapasitas antrian di antara dua tahap
+     */
+    public void setQueueCapacity(int capacity) {
+        this.queueCapacity = Math.max(1, capacity);
+    }
+    
+    /**
+     * Memasang cache hasil, sehingga gambar dengan piksel yang sama tidak dibangun ulang
+     */
+    public void setResultCache(ResultCache resultCache) {
+        this.resultCache = resultCache;
+    }
+    
+    /**
+     * Menulis thumbnail name_N.ext untuk setiap ukuran, dirender langsung dari pohon
+     */
+    public void setThumbnailSizes(int[] sizes) {
+        this.thumbnailSizes = sizes.clone();
+    }
+    
+    /**
+     * Menjalankan pipeline sampai semua gambar selesai, lalu mencetak throughput
+     */
+    public void run() throws InterruptedException {
+        BlockingQueue<Decoded> decoded = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<Built> built = new ArrayBlockingQueue<>(queueCapacity);
+        
+        ExecutorService decoders = Executors.newFixedThreadPool(decodeThreads);
+        ExecutorService builders = Executors.newFixedThreadPool(buildThreads);
+        ExecutorService encoders = Executors.newFixedThreadPool(encodeThreads);
+        
+        long startTime = System.nanoTime();
+        for (int i = 0; i < decodeThreads; i++) {
+            decoders.execute(() -> decodeStage(decoded));
+        }
+        for (int i = 0; i < buildThreads; i++) {
+            builders.execute(() -> buildStage(decoded, built));
+        }
+        for (int i = 0; i < encodeThreads; i++) {
+            encoders.execute(() -> encodeStage(built));
+        }
+        
+        // Setiap tahap ditutup setelah tahap sebelumnya selesai: satu penanda akhir per worker
+        finishStage(decoders, decoded, DECODED_END, buildThreads);
+        finishStage(builders, built, BUILT_END, encodeThreads);
+        finishStage(encoders, null, null, 0);
+        long elapsed = System.nanoTime() - startTime;
+        
+        double seconds = Math.max(elapsed, 1) / 1e9;
+        System.out.println("Gambar Berhasil: " + completed.get() + ", Gagal: " + failed.get());
+        System.out.println("Waktu Total: " + elapsed / 1_000_000 + " ms");
+        System.out.println(String.format(Locale.ROOT, "Throughput: %.2f gambar/s, %.2f MP/s",
+            completed.get() / seconds, totalPixels.get() / 1e6 / seconds));
+        if (resultCache != null) {
+            System.out.println("Cache Hasil: " + resultCache.getHits() + " hit, " + resultCache.getMisses()
+                + " miss, " + resultCache.getEvictions() + " diusir");
+        }
+    }
+    
+    private <T> void finishStage(ExecutorService stage, BlockingQueue<T> next, T end, int nextWorkers)
+            throws InterruptedException {
+        stage.shutdown();
+        stage.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        for (int i = 0; i < nextWorkers; i++) {
+            next.put(end);
+        }
+    }
+    
+    private void decodeStage(BlockingQueue<Decoded> decoded) {
+        try {
+            int index;
+            while ((index = nextInput.getAndIncrement()) < inputs.size()) {
+                File source = inputs.get(index);
+                try {
+                    BufferedImage image = ImageIO.read(source);
+                    if (image == null) {
+                        fail(source, "format tidak didukung");
+                        continue;
+                    }
+                    decoded.put(new Decoded(source, image));
+                } catch (IOException | RuntimeException e) {
+                    fail(source, e.toString());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private void buildStage(BlockingQueue<Decoded> decoded, BlockingQueue<Built> built) {
+        try {
+            Decoded job;
+            while ((job = decoded.take()) != DECODED_END) {
+                try {
+                    QuadTreeCompression compressor = new QuadTreeCompression(
+                        job.image(), job.source().getPath(), errorMethod, threshold, minBlockSize
+                    );
+                    compressor.setCompactTree(true);
+                    compressor.setResultCache(resultCache);
+                    compressor.compress();
+                    
+                    String extension = outputExtension(job.source());
+                    String key = compressor.getCacheKey();
+                    int outputType = compressor.getOutputImageType();
+                    byte[] encoded = key != null ? resultCache.getOutput(key, extension, outputType) : null;
+                    boolean qtc = extension.equals("qtc");
+                    BufferedImage rendered = encoded == null && !qtc ? compressor.getCompressedImage() : null;
+                    CompactQuadTree tree = (encoded == null && qtc) || thumbnailSizes.length > 0
+                        ? compressor.getCompactTree()
+                        : null;
+                    built.put(new Built(job.source(), (long) job.image().getWidth() * job.image().getHeight(),
+                        tree, rendered, encoded, key, outputType));
+                } catch (RuntimeException e) {
+                    fail(job.source(), e.toString());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private void encodeStage(BlockingQueue<Built> built) {
+        try {
+            Built job;
+            while ((job = built.take()) != BUILT_END) {
+                try {
+                    writeOutput(job);
+                    completed.incrementAndGet();
+                    totalPixels.addAndGet(job.pixelCount());
+                } catch (IOException | RuntimeException e) {
+                    fail(job.source(), e.toString());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private void writeOutput(Built job) throws IOException {
+        String baseName = baseName(job.source());
+        String extension = outputExtension(job.source());
+        File output = new File(outputDirectory, baseName + "." + extension);
+        
+        if (job.encoded() != null) {
+            Files.write(output.toPath(), job.encoded());
+        } else if (job.cacheKey() != null) {
+            // Di-encode sekali di memori agar hasilnya juga bisa disimpan ke cache
+            ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+            encode(job, extension, encoded);
+            resultCache.putOutput(job.cacheKey(), extension, job.outputType(), encoded.toByteArray());
+            Files.write(output.toPath(), encoded.toByteArray());
+        } else {
+            try (OutputStream stream = new BufferedOutputStream(new FileOutputStream(output), 1 << 16)) {
+                encode(job, extension, stream);
+            }
+        }
+        
+        // Thumbnail .qtc tidak ada artinya, jadi memakai png
+        String thumbnailExtension = extension.equals("qtc") ? "png" : extension;
+        for (int size : thumbnailSizes) {
+            File thumbnail = new File(outputDirectory, baseName + "_" + size + "." + thumbnailExtension);
+            int[] thumbnailSize = ThumbnailRenderer.fitWithin(job.tree().getWidth(), job.tree().getHeight(), size);
+            BufferedImage image = ThumbnailRenderer.render(job.tree(), thumbnailSize[0], thumbnailSize[1]);
+            if (!ImageIO.write(image, thumbnailExtension, thumbnail)) {
+                throw new IOException("Tidak ada writer untuk format " + thumbnailExtension);
+            }
+        }
+    }
+    
+    /**
+     * Menulis pohon dalam format native .qtc, atau gambar hasil render ke format raster
+     */
+    private void encode(Built job, String extension, OutputStream output) throws IOException {
+        if (extension.equals("qtc")) {
+            QtcWriter.write(job.tree(), minBlockSize, output, true);
+        } else if (!ImageIO.write(job.rendered(), extension, output)) {
+            throw new IOException("Tidak ada writer untuk format " + extension);
+        }
+    }
+    
+    private static String baseName(File source) {
+        String name = source.getName();
+        int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(0, dot) : name;
+    }
+    
+    /**
+     * Ekstensi output dalam huruf kecil: format yang diminta, atau ekstensi file asal
+     */
+    private String outputExtension(File source) {
+        if (format != null) {
+            return format;
+        }
+        String name = source.getName();
+        int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(dot + 1).toLowerCase(Locale.ROOT) : "png";
+    }
+    
+    private void fail(File source, String message) {
+        failed.incrementAndGet();
+        System.err.println("Gagal memproses " + source + ": " + message);
+    }
+    
+    /**
+     * Mengumpulkan file gambar dari direktori, atau membaca daftar path (satu per baris)
+     * dari file teks. Baris kosong dan baris yang diawali '#' diabaikan
+     */
+    public static List<File> collectInputs(File input) throws IOException {
+        List<File> files = new ArrayList<>();
+        if (input.isDirectory()) {
+            File[] entries = input.listFiles();
+            if (entries != null) {
+                Arrays.sort(entries);
+                for (File entry : entries) {
+                    if (entry.isFile() && isImageFile(entry)) {
+                        files.add(entry);
+                    }
+                }
+            }
+        } else {
+            for (String line : Files.readAllLines(input.toPath())) {
+                line = line.trim();
+                if (!line.isEmpty() && !line.startsWith("#")) {
+                    files.add(new File(line));
+                }
+            }
+        }
+        return files;
+    }
+    
+    private static boolean isImageFile(File file) {
+        String name = file.getName().toLowerCase(Locale.ROOT);
+        for (String extension : IMAGE_EXTENSIONS) {
+            if (name.endsWith("." + extension)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * java BatchCompressor <direktori|daftar.txt> <direktori output> [opsi]
+     */
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.out.println("Penggunaan: java BatchCompressor <direktori input|daftar.txt> <direktori output>");
+            System.out.println("  [--method 1-4] [--threshold T] [--min-block N] [--format png|jpg|bmp|qtc]");
+            System.out.println("  [--decode-threads N] [--build-threads N] [--encode-threads N] [--queue N]");
+            System.out.println("  [--cache-mb N] [--cache-dir direktori] [--thumbnails 64,256,...]");
+            return;
+        }
+        
+        try {
+            List<File> inputs = collectInputs(new File(args[0]));
+            File outputDirectory = new File(args[1]);
+            if (!outputDirectory.isDirectory() && !outputDirectory.mkdirs()) {
+                System.err.println("Error: direktori output tidak bisa dibuat: " + outputDirectory);
+                return;
+            }
+            
+            String format = null;
+            int decode = 2, build = Runtime.getRuntime().availableProcessors(), encode = 2;
+            int queue = -1;
+            int method = ErrorMeasurementImpl.VARIANCE;
+            double threshold = 10;
+            int minBlockSize = 4;
+            long cacheMegabytes = 0;
+            File cacheDirectory = null;
+            int[] thumbnails = new int[0];
+            for (int i = 2; i < args.length; i += 2) {
+                if (i + 1 == args.length) {
+                    System.err.println("Error: opsi " + args[i] + " membutuhkan nilai");
+                    return;
+                }
+                String value = args[i + 1];
+                switch (args[i]) {
+                    case "--method" -> method = Integer.parseInt(value);
+                    case "--threshold" -> threshold = Double.parseDouble(value);
+                    case "--min-block" -> minBlockSize = Integer.parseInt(value);
+                    case "--format" -> format = value.toLowerCase(Locale.ROOT);
+                    case "--decode-threads" -> decode = Integer.parseInt(value);
+                    case "--build-threads" -> build = Integer.parseInt(value);
+                    case "--encode-threads" -> encode = Integer.parseInt(value);
+                    case "--queue" -> queue = Integer.parseInt(value);
+                    case "--cache-mb" -> cacheMegabytes = Long.parseLong(value);
+                    case "--cache-dir" -> cacheDirectory = new File(value);
+                    case "--thumbnails" -> thumbnails = Arrays.stream(value.split(","))
+                        .map(String::trim).mapToInt(Integer::parseInt).toArray();
+                    default -> System.out.println("Warning: opsi tidak dikenal diabaikan: " + args[i]);
+                }
+            }
+            if (method < 1 || method > 4 || threshold < 0 || minBlockSize < 1
+                    || Arrays.stream(thumbnails).anyMatch(size -> size < 1)) {
+                System.err.println("Error: parameter tidak valid");
+                return;
+            }
+            
+            BatchCompressor batch = new BatchCompressor(inputs, outputDirectory, format);
+            batch.setErrorMethod(method);
+            batch.setThreshold(threshold);
+            batch.setMinBlockSize(minBlockSize);
+            batch.setThreads(decode, build, encode);
+            batch.setQueueCapacity(queue > 0 ? queue : 2 * Math.max(1, build));
+            batch.setThumbnailSizes(thumbnails);
+            if (cacheMegabytes > 0) {
+                batch.setResultCache(new ResultCache(cacheMegabytes << 20, cacheDirectory));
+            }
+            
+            System.out.println("Memproses " + inputs.size() + " gambar (decode " + decode
+                + ", build " + build + ", encode " + encode + " thread)");
+            batch.run();
+        } catch (NumberFormatException e) {
+            System.err.println("Error: nilai opsi tidak valid: " + e.getMessage());
+        } catch (IOException e) {
+            System.err.println("Error membaca input: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
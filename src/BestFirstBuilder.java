@@ -0,0 +1,129 @@
+import java.util.PriorityQueue;
+
+/**
+ * Pembangun quadtree best-first: leaf dengan error tertinggi selalu dibagi lebih dulu.
+ * Pembangunan berhenti saat tidak ada leaf yang perlu dibagi lagi, atau saat salah
+ * satu batas (jumlah node, perkiraan memori, atau waktu) tercapai. Tanpa batas,
+ * hasilnya sama dengan buildQuadTree karena syarat split setiap node sama
+ */
+public class BestFirstBuilder {
+    // Alasan pembangunan berhenti
+    public static final int COMPLETED = 0;
+    public static final int NODE_BUDGET = 1;
+    public static final int MEMORY_BUDGET = 2;
+    public static final int DEADLINE = 3;
+    
+    // Perkiraan kasar memori per node: objek QuadTreeNode ditambah entri antrian
+    public static final long ESTIMATED_BYTES_PER_NODE = 96;
+    
+    private final PixelBuffer pixels;
+    private final IntegralImage integralImage;
+    private final ErrorMeasurement errorMeasurement;
+    private final double threshold;
+    private final int minBlockSize;
+    
+    private long nodeBudget = Long.MAX_VALUE;
+    private long memoryBudget = Long.MAX_VALUE;
+    private long timeBudgetNanos = Long.MAX_VALUE;
+    
+    // Jumlah evaluasi error dan total luas blok yang dievaluasi
+    private long evaluations;
+    private long evaluatedPixels;
+    
+    /**
+     * Leaf yang menunggu dibagi beserta error-nya
+     */
+    private record Candidate(QuadTreeNode node, double error) {}
+    
+    public BestFirstBuilder(PixelBuffer pixels, IntegralImage integralImage, ErrorMeasurement errorMeasurement,
+                            double threshold, int minBlockSize) {
+        this.pixels = pixels;
+        this.integralImage = integralImage;
+        this.errorMeasurement = errorMeasurement;
+        this.threshold = threshold;
+        this.minBlockSize = minBlockSize;
+    }
+    
+    /**
+     * Batas jumlah node di pohon hasil (termasuk root)
+     */
+    public void setNodeBudget(long maxNodes) {
+        this.nodeBudget = maxNodes;
+    }
+    
+    /**
+     * Batas perkiraan memori pohon dalam byte
+     */
+    public void setMemoryBudget(long maxBytes) {
+        this.memoryBudget = maxBytes;
+    }
+    
+    /**
+     * Batas waktu pembangunan dalam milidetik
+     */
+    public void setTimeBudget(long millis) {
+        this.timeBudgetNanos = millis >= Long.MAX_VALUE / 1_000_000 ? Long.MAX_VALUE : millis * 1_000_000;
+    }
+    
+    public long getEvaluationCount() {
+        return evaluations;
+    }
+    
+    public long getEvaluatedPixels() {
+        return evaluatedPixels;
+    }
+    
+    /**
+     * Membangun pohon mulai dari root dan mengembalikan alasan berhenti
+     */
+    public int build(QuadTreeNode root) {
+        long startTime = System.nanoTime();
+        PriorityQueue<Candidate> queue = new PriorityQueue<>(
+            (a, b) -> Double.compare(b.error(), a.error())
+        );
+        
+        long nodes = 1;
+        offer(queue, root);
+        
+        while (!queue.isEmpty()) {
+            if (nodes + 4 > nodeBudget) {
+                return NODE_BUDGET;
+            }
+            if ((nodes + 4 + queue.size()) * ESTIMATED_BYTES_PER_NODE > memoryBudget) {
+                return MEMORY_BUDGET;
+            }
+            if (System.nanoTime() - startTime > timeBudgetNanos) {
+                return DEADLINE;
+            }
+            
+            QuadTreeNode node = queue.poll().node();
+            node.split();
+            nodes += 4;
+            
+            offer(queue, node.getNorthWest());
+            offer(queue, node.getNorthEast());
+            offer(queue, node.getSouthWest());
+            offer(queue, node.getSouthEast());
+        }
+        return COMPLETED;
+    }
+    
+    /**
+     * Menghitung rata-rata node dan memasukkannya ke antrian jika perlu dibagi
+     */
+    private void offer(PriorityQueue<Candidate> queue, QuadTreeNode node) {
+        node.calculateAverage(integralImage);
+        if (!QuadTreeNode.isSplittable(node.getWidth(), node.getHeight(), minBlockSize)) {
+            return;
+        }
+        
+        double error = errorMeasurement.calculateError(
+            pixels, node.getX(), node.getY(), node.getWidth(), node.getHeight()
+        );
+        evaluations++;
+        evaluatedPixels += (long) node.getWidth() * node.getHeight();
+        if (error > threshold) {
+            queue.add(new Candidate(node, error));
+        }
+    }
+}
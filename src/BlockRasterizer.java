@@ -0,0 +1,286 @@
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Menggambar leaf quadtree langsung ke array DataBuffer gambar tujuan.
+ *
+ * Warna leaf diubah sekali ke data element lewat ColorModel.getDataElements,
+ * persis seperti yang dilakukan BufferedImage.setRGB, lalu ditulis baris demi
+ * baris dengan Arrays.fill atau System.arraycopy. Hasilnya identik dengan setRGB
+ * untuk semua tipe gambar, termasuk gambar berpalet.
+ *
+ * Penulisan langsung didukung untuk DataBufferInt dengan satu int per piksel
+ * (TYPE_INT_RGB, TYPE_INT_ARGB, ...) dan DataBufferByte dengan piksel interleaved
+ * yang rapat (TYPE_3BYTE_BGR, TYPE_4BYTE_ABGR, TYPE_BYTE_INDEXED, TYPE_BYTE_GRAY).
+ * Tipe lain, misalnya TYPE_BYTE_BINARY yang mengemas beberapa piksel per byte,
+ * memakai setRGB per baris dan selalu digambar sekuensial.
+ *
+ * Subtree yang terpisah menulis ke bagian array yang berbeda, sehingga bisa
+ * digambar paralel tanpa sinkronisasi
+ */
+public class BlockRasterizer {
+    // Subtree dengan luas sampai batas ini digambar dalam satu task
+    private static final long PARALLEL_CUTOFF = 1 << 16;
+    
+    private final BufferedImage image;
+    
+    // Tepat salah satu terisi jika penulisan langsung didukung
+    private final int[] intData;
+    private final byte[] byteData;
+    
+    // Indeks elemen untuk piksel (0, 0), jarak antar baris, dan elemen per piksel
+    private final int origin;
+    private final int scanlineStride;
+    private final int pixelStride;
+    
+    // Posisi tiap band di dalam satu piksel (hanya untuk byteData)
+    private final int[] bandOffsets;
+    
+    public BlockRasterizer(BufferedImage image) {
+        this.image = image;
+        
+        WritableRaster raster = image.getRaster();
+        SampleModel sampleModel = raster.getSampleModel();
+        DataBuffer dataBuffer = raster.getDataBuffer();
+        int translateX = raster.getSampleModelTranslateX();
+        int translateY = raster.getSampleModelTranslateY();
+        
+        int[] ints = null;
+        byte[] bytes = null;
+        int stride = 0, elements = 0, start = 0;
+        int[] offsets = null;
+        
+        if (dataBuffer instanceof DataBufferInt intBuffer && dataBuffer.getNumBanks() == 1
+                && sampleModel instanceof SinglePixelPackedSampleModel packed) {
+            ints = intBuffer.getData();
+            stride = packed.getScanlineStride();
+            elements = 1;
+            start = intBuffer.getOffset() - translateY * stride - translateX;
+        } else if (dataBuffer instanceof DataBufferByte byteBuffer && dataBuffer.getNumBanks() == 1
+                && sampleModel instanceof ComponentSampleModel component
+                && isDense(component)) {
+            bytes = byteBuffer.getData();
+            stride = component.getScanlineStride();
+            elements = component.getPixelStride();
+            offsets = component.getBandOffsets();
+            start = byteBuffer.getOffset() - translateY * stride - translateX * elements;
+        }
+        
+        this.intData = ints;
+        this.byteData = bytes;
+        this.scanlineStride = stride;
+        this.pixelStride = elements;
+        this.bandOffsets = offsets;
+        this.origin = start;
+    }
+    
+    /**
+     * Piksel interleaved yang rapat: satu bank, dan setiap band menempati tepat
+     * satu byte berbeda di dalam pixelStride byte milik piksel itu
+     */
+    private static boolean isDense(ComponentSampleModel component) {
+        int[] offsets = component.getBandOffsets();
+        if (component.getPixelStride() != offsets.length) {
+            return false;
+        }
+        
+        boolean[] used = new boolean[offsets.length];
+        for (int band = 0; band < offsets.length; band++) {
+            int offset = offsets[band];
+            if (component.getBankIndices()[band] != 0 || offset < 0 || offset >= offsets.length || used[offset]) {
+                return false;
+            }
+            used[offset] = true;
+        }
+        return true;
+    }
+    
+    /**
+     * Apakah gambar ditulis langsung ke DataBuffer (dan boleh digambar paralel)
+     */
+    public boolean isDirect() {
+        return intData != null || byteData != null;
+    }
+    
+    /**
+     * Mengisi satu blok dengan satu warna ARGB, dipotong ke batas gambar
+     */
+    public void fill(int x, int y, int width, int height, int rgb) {
+        int right = Math.min(x + width, image.getWidth());
+        int bottom = Math.min(y + height, image.getHeight());
+        int rowWidth = right - x;
+        if (rowWidth <= 0 || bottom <= y) {
+            return;
+        }
+        
+        Object pixel = image.getColorModel().getDataElements(rgb, null);
+        if (intData != null) {
+            int value = ((int[]) pixel)[0];
+            for (int j = y; j < bottom; j++) {
+                int start = origin + j * scanlineStride + x;
+                Arrays.fill(intData, start, start + rowWidth, value);
+            }
+        } else if (byteData != null) {
+            fillBytes(x, y, rowWidth, bottom, (byte[]) pixel);
+        } else {
+            ImageProcessor.fillBlock(image, x, y, rowWidth, bottom - y, rgb);
+        }
+    }
+    
+    private void fillBytes(int x, int y, int rowWidth, int bottom, byte[] pixel) {
+        int rowStart = origin + y * scanlineStride + x * pixelStride;
+        int rowLength = rowWidth * pixelStride;
+        
+        // Baris pertama: satu piksel, lalu digandakan sampai selebar blok
+        for (int band = 0; band < bandOffsets.length; band++) {
+            byteData[rowStart + bandOffsets[band]] = pixel[band];
+        }
+        for (int filled = pixelStride; filled < rowLength; filled *= 2) {
+            System.arraycopy(byteData, rowStart, byteData, rowStart + filled, Math.min(filled, rowLength - filled));
+        }
+        
+        // Baris berikutnya disalin dari baris pertama
+        for (int j = y + 1; j < bottom; j++) {
+            System.arraycopy(byteData, rowStart, byteData, rowStart + (j - y) * scanlineStride, rowLength);
+        }
+    }
+    
+    /**
+     * Menggambar semua leaf dari node
+     */
+    public void render(QuadTreeNode node) {
+        if (node.isLeaf()) {
+            fill(node.getX(), node.getY(), node.getWidth(), node.getHeight(), node.getAverageRGB());
+        } else {
+            render(node.getNorthWest());
+            render(node.getNorthEast());
+            render(node.getSouthWest());
+            render(node.getSouthEast());
+        }
+    }
+    
+    /**
+     * Menggambar quadtree dengan sejumlah thread. Subtree besar dibagi ke task
+     * fork/join, subtree kecil digambar sekuensial di dalam satu task
+     */
+    public void render(QuadTreeNode root, int parallelism) {
+        if (parallelism <= 1 || !isDirect()) {
+            render(root);
+            return;
+        }
+        
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(new NodeTask(root));
+        } finally {
+            pool.shutdown();
+        }
+    }
+    
+    /**
+     * Menggambar semua leaf quadtree ringkas
+     */
+    public void render(CompactQuadTree tree) {
+        render(tree, CompactQuadTree.ROOT, 0, 0, tree.getWidth(), tree.getHeight());
+    }
+    
+    /**
+     * Versi paralel untuk quadtree ringkas
+     */
+    public void render(CompactQuadTree tree, int parallelism) {
+        if (parallelism <= 1 || !isDirect()) {
+            render(tree);
+            return;
+        }
+        
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(new CompactTask(tree, CompactQuadTree.ROOT, 0, 0, tree.getWidth(), tree.getHeight()));
+        } finally {
+            pool.shutdown();
+        }
+    }
+    
+    private void render(CompactQuadTree tree, int index, int x, int y, int width, int height) {
+        int child = tree.getFirstChild(index);
+        if (child == CompactQuadTree.NO_CHILD) {
+            fill(x, y, width, height, tree.getColor(index));
+            return;
+        }
+        
+        // Ukuran anak sama dengan QuadTreeNode.split
+        int westWidth = (width + 1) / 2;
+        int northHeight = (height + 1) / 2;
+        render(tree, child, x, y, westWidth, northHeight);
+        render(tree, child + 1, x + westWidth, y, width - westWidth, northHeight);
+        render(tree, child + 2, x, y + northHeight, westWidth, height - northHeight);
+        render(tree, child + 3, x + westWidth, y + northHeight, width - westWidth, height - northHeight);
+    }
+    
+    private class NodeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        
+        private final QuadTreeNode node;
+        
+        NodeTask(QuadTreeNode node) {
+            this.node = node;
+        }
+        
+        @Override
+        protected void compute() {
+            if (node.isLeaf() || (long) node.getWidth() * node.getHeight() <= PARALLEL_CUTOFF) {
+                render(node);
+                return;
+            }
+            invokeAll(
+                new NodeTask(node.getNorthWest()),
+                new NodeTask(node.getNorthEast()),
+                new NodeTask(node.getSouthWest()),
+                new NodeTask(node.getSouthEast())
+            );
+        }
+    }
+    
+    private class CompactTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        
+        private final CompactQuadTree tree;
+        private final int index, x, y, width, height;
+        
+        CompactTask(CompactQuadTree tree, int index, int x, int y, int width, int height) {
+            this.tree = tree;
+            this.index = index;
+            this.x = x;
+            this.y = y;
+            this.width = width;
+            this.height = height;
+        }
+        
+        @Override
+        protected void compute() {
+            int child = tree.getFirstChild(index);
+            if (child == CompactQuadTree.NO_CHILD || (long) width * height <= PARALLEL_CUTOFF) {
+                render(tree, index, x, y, width, height);
+                return;
+            }
+            
+            int westWidth = (width + 1) / 2;
+            int northHeight = (height + 1) / 2;
+            invokeAll(
+                new CompactTask(tree, child, x, y, westWidth, northHeight),
+                new CompactTask(tree, child + 1, x + westWidth, y, width - westWidth, northHeight),
+                new CompactTask(tree, child + 2, x, y + northHeight, westWidth, height - northHeight),
+                new CompactTask(tree, child + 3, x + westWidth, y + northHeight, width - westWidth, height - northHeight)
+            );
+        }
+    }
+}
@@ -0,0 +1,173 @@
+import java.util.Arrays;
+
+/**
+ * Representasi quadtree yang ringkas dalam dua array int paralel, sebagai
+ * pengganti pohon objek QuadTreeNode untuk gambar besar dengan banyak node.
+ *
+ * Keempat anak sebuah node disimpan berurutan (NW, NE, SW, SE) mulai dari
+ * indeks firstChild, leaf bernilai -1. Posisi dan ukuran blok tidak disimpan,
+ * melainkan dihitung ulang dari ukuran root saat traversal dengan aturan
+ * pembagian yang sama seperti QuadTreeNode.split. Setiap node hanya memakai
+ * 8 byte (indeks anak dan warna rata-rata RGB packed)
+ */
+public class CompactQuadTree {
+    public static final int ROOT = 0;
+    public static final int NO_CHILD = -1;
+    
+    private static final int INITIAL_CAPACITY = 64;
+    
+    private final int width;
+    private final int height;
+    
+    private int[] firstChild;
+    private int[] color;
+    private int size;
+    
+    /**
+     * Membuat pohon dengan satu node root (leaf) seukuran gambar
+     */
+    public CompactQuadTree(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.firstChild = new int[INITIAL_CAPACITY];
+        this.color = new int[INITIAL_CAPACITY];
+        this.firstChild[ROOT] = NO_CHILD;
+        this.size = 1;
+    }
+    
+    /**
+     * Mengonversi pohon objek QuadTreeNode ke representasi ringkas
+     */
+    public static CompactQuadTree fromNode(QuadTreeNode root) {
+        CompactQuadTree tree = new CompactQuadTree(root.getWidth(), root.getHeight());
+        tree.copyFrom(root, ROOT);
+        return tree;
+    }
+    
+    private void copyFrom(QuadTreeNode node, int index) {
+        color[index] = node.getAverageRGB();
+        if (node.isLeaf()) {
+            return;
+        }
+        
+        int child = split(index);
+        copyFrom(node.getNorthWest(), child);
+        copyFrom(node.getNorthEast(), child + 1);
+        copyFrom(node.getSouthWest(), child + 2);
+        copyFrom(node.getSouthEast(), child + 3);
+    }
+    
+    /**
+     * Mengonversi kembali ke pohon objek QuadTreeNode, kebalikan dari fromNode
+     */
+    public QuadTreeNode toNode() {
+        QuadTreeNode root = new QuadTreeNode(0, 0, width, height);
+        copyTo(root, ROOT);
+        return root;
+    }
+    
+    private void copyTo(QuadTreeNode node, int index) {
+        node.setAverageRGB(color[index]);
+        int child = firstChild[index];
+        if (child == NO_CHILD) {
+            return;
+        }
+        
+        node.split();
+        copyTo(node.getNorthWest(), child);
+        copyTo(node.getNorthEast(), child + 1);
+        copyTo(node.getSouthWest(), child + 2);
+        copyTo(node.getSouthEast(), child + 3);
+    }
+    
+    /**
+     * Membagi node menjadi empat anak leaf dan mengembalikan indeks anak pertama (NW)
+     */
+    public int split(int index) {
+        if (size + 4 > firstChild.length) {
+            int capacity = Math.max(firstChild.length * 2, size + 4);
+            firstChild = Arrays.copyOf(firstChild, capacity);
+            color = Arrays.copyOf(color, capacity);
+        }
+        
+        int child = size;
+        size += 4;
+        firstChild[index] = child;
+        Arrays.fill(firstChild, child, child + 4, NO_CHILD);
+        return child;
+    }
+    
+    /**
+     * Membuang kapasitas array yang tidak terpakai setelah pohon selesai dibangun
+     */
+    public void trim() {
+        firstChild = Arrays.copyOf(firstChild, size);
+        color = Arrays.copyOf(color, size);
+    }
+    
+    public int getWidth() {
+        return width;
+    }
+    
+    public int getHeight() {
+        return height;
+    }
+    
+    public int getNodeCount() {
+        return size;
+    }
+    
+    public boolean isLeaf(int index) {
+        return firstChild[index] == NO_CHILD;
+    }
+    
+    /**
+     * Indeks anak pertama (NW), anak lain berada di +1 (NE), +2 (SW), +3 (SE)
+     */
+    public int getFirstChild(int index) {
+        return firstChild[index];
+    }
+    
+    public int getColor(int index) {
+        return color[index];
+    }
+    
+    public void setColor(int index, int rgb) {
+        color[index] = rgb;
+    }
+    
+    /**
+     * Menghitung jumlah leaf dengan satu kali iterasi linear
+     */
+    public int getLeafCount() {
+        int leaves = 0;
+        for (int i = 0; i < size; i++) {
+            if (firstChild[i] == NO_CHILD) {
+                leaves++;
+            }
+        }
+        return leaves;
+    }
+    
+    /**
+     * Menghitung kedalaman pohon. Indeks anak selalu lebih besar dari indeks induknya,
+     * sehingga cukup satu iterasi linear tanpa rekursi
+     */
+    public int getDepth() {
+        byte[] depth = new byte[size];
+        int maxDepth = 1;
+        depth[ROOT] = 1;
+        for (int i = 0; i < size; i++) {
+            int child = firstChild[i];
+            if (child != NO_CHILD) {
+                byte childDepth = (byte) (depth[i] + 1);
+                depth[child] = childDepth;
+                depth[child + 1] = childDepth;
+                depth[child + 2] = childDepth;
+                depth[child + 3] = childDepth;
+                maxDepth = Math.max(maxDepth, childDepth);
+            }
+        }
+        return maxDepth;
+    }
+}
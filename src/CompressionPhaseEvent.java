@@ -0,0 +1,31 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Event Java Flight Recorder untuk satu tahap kompresi (decode, build, render, ...).
+ * Aktif jika JVM merekam dengan JFR, misalnya -XX:StartFlightRecording, dan
+ * hampir tanpa biaya jika tidak
+ */
+@Name("quadtree.CompressionPhase")
+@Label("Compression Phase")
+@Category("QuadTree")
+@Description("Satu tahap pipeline kompresi quadtree")
+public class CompressionPhaseEvent extends jdk.jfr.Event {
+    @Label("Phase")
+    public String phase;
+    
+    @Label("Source")
+    public String source;
+    
+    @Label("Width")
+    public int width;
+    
+    @Label("Height")
+    public int height;
+    
+    @Label("Error Evaluations")
+    @Description("Evaluasi error selama tahap ini")
+    public long errorEvaluations;
+}
@@ -0,0 +1,440 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.imageio.ImageIO;
+
+/**
+ * Mode layanan HTTP yang berjalan terus, sehingga JVM dan JIT tetap hangat antar gambar.
+ *
+ *   POST /compress?method=1&threshold=10&minBlock=4&format=png
+ *
+ * Body request adalah file gambar mentah, response adalah hasil kompresi dalam
+ * format yang diminta (png, jpg, bmp, atau qtc untuk format native). Statistik
+ * per tahap dikirim di header X-Quadtree-Stats sebagai JSON. GET /health
+ * mengembalikan penghitung server dalam JSON.
+ *
+ * Setiap request ditangani thread ringan: virtual thread jika JVM mendukungnya
+ * (Java 21+), selain itu cached thread pool. Decode, build, dan encode yang
+ * berat di CPU dijalankan di pool worker berukuran tetap. Admission control
+ * memakai semaphore sebesar worker ditambah antrian yang diambil sebelum body
+ * dibaca: jika semua izin terpakai sampai batas tunggu habis, request ditolak
+ * dengan 503 dan Retry-After tanpa membaca upload, sehingga beban berlebih tidak
+ * menumpuk gambar di memori
+ */
+public class CompressionServer {
+    public static final int DEFAULT_PORT = 8080;
+    
+    private static final String[] OUTPUT_FORMATS = {"png", "jpg", "jpeg", "bmp", "gif", "qtc"};
+    
+    private final String host;
+    private final int port;
+    
+    private int workerThreads = Runtime.getRuntime().availableProcessors();
+    private int queueCapacity = 2 * workerThreads;
+    private long admissionTimeoutMillis = 100;
+    private int maxUploadBytes = 64 << 20;
+    
+    private HttpServer server;
+    private ExecutorService requestExecutor;
+    private ExecutorService workers;
+    private Semaphore admission;
+    
+    // Cache hasil bersama semua request, null jika tidak dipakai
+    private ResultCache resultCache;
+    
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    
+    /**
+     * @param host Alamat bind, misalnya 127.0.0.1 agar hanya bisa diakses lokal
+     * @param port Port, atau 0 untuk port bebas (lihat getPort)
+     */
+    public CompressionServer(String host, int port) {
+        this.host = host;
+        this.port = port;
+    }
+    
+    /**
+     * Jumlah thread worker untuk decode, build, dan encode
+     */
+    public void setWorkerThreads(int threads) {
+        this.workerThreads = Math.max(1, threads);
+    }
+    
+    /**
+     * Jumlah request yang boleh menunggu worker di luar yang sedang diproses
+     */
+    public void setQueueCapacity(int capacity) {
+        this.queueCapacity = Math.max(0, capacity);
+    }
+    
+    /**
+     * Berapa lama request menunggu izin masuk sebelum ditolak dengan 503
+     */
+    public void setAdmissionTimeout(long millis) {
+        this.admissionTimeoutMillis = Math.max(0, millis);
+    }
+    
+    public void setMaxUploadBytes(int bytes) {
+        this.maxUploadBytes = Math.max(1, bytes);
+    }
+    
+    /**
+     * Memasang cache hasil. Upload yang sama persis dengan parameter yang sama
+     * dijawab dari cache tanpa decode dan tanpa menunggu worker
+     */
+    public void setResultCache(ResultCache resultCache) {
+        this.resultCache = resultCache;
+    }
+    
+    public void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(host, port), 0);
+        requestExecutor = newRequestExecutor();
+        workers = Executors.newFixedThreadPool(workerThreads);
+        admission = new Semaphore(workerThreads + queueCapacity);
+        
+        server.setExecutor(requestExecutor);
+        server.createContext("/compress", this::handleCompress);
+        server.createContext("/health", this::handleHealth);
+        server.start();
+    }
+    
+    /**
+     * Menghentikan server, request yang sedang berjalan diberi waktu sampai delaySeconds
+     */
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        workers.shutdown();
+        requestExecutor.shutdown();
+    }
+    
+    /**
+     * Port yang benar-benar dipakai, berguna jika dibuat dengan port 0
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+    
+    /**
+     * Virtual thread per request jika tersedia (Java 21+). Dipanggil lewat refleksi
+     * agar kode tetap bisa dikompilasi dan berjalan di Java 17
+     */
+    private static ExecutorService newRequestExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+    
+    /**
+     * Parameter kompresi dari query string
+     */
+    private record Request(int method, double threshold, int minBlockSize, String format) {}
+    
+    /**
+     * Hasil sebuah request: body response, atau status dan pesan error untuk klien
+     */
+    private record Reply(int status, byte[] body, String error) {
+        static Reply error(int status, String message) {
+            return new Reply(status, null, message);
+        }
+    }
+    
+    private void handleCompress(HttpExchange exchange) {
+        try {
+            if (!exchange.getRequestMethod().equals("POST")) {
+                exchange.getResponseHeaders().set("Allow", "POST");
+                sendText(exchange, 405, "Gunakan POST dengan gambar sebagai body");
+                return;
+            }
+            
+            Request request;
+            try {
+                request = parseRequest(exchange.getRequestURI().getRawQuery());
+            } catch (IllegalArgumentException e) {
+                sendText(exchange, 400, e.getMessage());
+                return;
+            }
+            
+            // Backpressure sebelum body dibaca: tunggu sebentar, lalu tolak jika worker dan antrian penuh
+            if (!admission.tryAcquire(admissionTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                rejected.incrementAndGet();
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                sendText(exchange, 503, "Server sibuk, coba lagi");
+                return;
+            }
+            
+            Reply reply;
+            try {
+                reply = process(exchange, request);
+            } finally {
+                admission.release();
+            }
+            
+            if (reply.body() == null) {
+                sendText(exchange, reply.status(), reply.error());
+                return;
+            }
+            exchange.getResponseHeaders().set("Content-Type", contentType(request.format()));
+            send(exchange, 200, reply.body());
+            completed.incrementAndGet();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | IOException | RuntimeException e) {
+            failed.incrementAndGet();
+            Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+            System.err.println("Gagal memproses request: " + cause);
+            trySendText(exchange, 500, "Kompresi gagal: " + cause.getMessage());
+        } finally {
+            exchange.close();
+        }
+    }
+    
+    /**
+     * Membaca upload dan menjawabnya dari cache atau lewat worker. Dipanggil hanya
+     * dengan izin admission, sehingga jumlah upload di memori ikut dibatasi
+     */
+    private Reply process(HttpExchange exchange, Request request)
+            throws IOException, InterruptedException, ExecutionException {
+        long declaredLength = contentLength(exchange);
+        if (declaredLength > maxUploadBytes) {
+            return Reply.error(413, "Gambar melebihi " + maxUploadBytes + " byte");
+        }
+        byte[] upload = exchange.getRequestBody().readNBytes(maxUploadBytes + 1);
+        if (upload.length > maxUploadBytes) {
+            return Reply.error(413, "Gambar melebihi " + maxUploadBytes + " byte");
+        }
+        
+        String sourceKey = null;
+        if (resultCache != null) {
+            sourceKey = ResultCache.sourceKey(upload, request.method(), request.threshold(), request.minBlockSize());
+            byte[] cached = resultCache.getOutputBySource(sourceKey, request.format());
+            if (cached != null) {
+                exchange.getResponseHeaders().set("X-Quadtree-Cache", "hit");
+                return new Reply(200, cached, null);
+            }
+        }
+        
+        String source = sourceKey;
+        Future<Reply> result = workers.submit(() -> compress(upload, request, source, exchange));
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            result.cancel(true);
+            throw e;
+        }
+    }
+    
+    /**
+     * Nilai header Content-Length, atau -1 jika tidak ada atau tidak valid
+     */
+    private static long contentLength(HttpExchange exchange) {
+        String length = exchange.getRequestHeaders().getFirst("Content-Length");
+        try {
+            return length != null ? Long.parseLong(length.trim()) : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+    
+    /**
+     * Decode, bangun quadtree, dan encode hasil di thread worker. Statistik ditulis
+     * ke header response. Gambar yang tidak bisa didekode, atau tidak bisa ditulis
+     * ke format yang diminta (misalnya JPEG untuk gambar dengan alpha), ditolak
+     * sebelum quadtree dibangun
+     */
+    private Reply compress(byte[] upload, Request request, String sourceKey, HttpExchange exchange)
+            throws IOException {
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(upload));
+        if (image == null) {
+            return Reply.error(400, "Format gambar tidak didukung");
+        }
+        if (!QuadTreeCompression.canEncode(image, request.format())) {
+            return Reply.error(422, "Gambar ini tidak bisa ditulis sebagai " + request.format());
+        }
+        QuadTreeCompression compressor = new QuadTreeCompression(
+            image, "upload", request.method(), request.threshold(), request.minBlockSize()
+        );
+        compressor.setResultCache(resultCache);
+        compressor.compress();
+        byte[] output = compressor.encodeCompressedImage(request.format());
+        
+        if (resultCache != null && compressor.getCacheKey() != null) {
+            resultCache.putAlias(sourceKey, compressor.getCacheKey(), compressor.getOutputImageType());
+            exchange.getResponseHeaders().set("X-Quadtree-Cache", "miss");
+        }
+        exchange.getResponseHeaders().set("X-Quadtree-Stats", compressor.getStatsJson());
+        return new Reply(200, output, null);
+    }
+    
+    private void handleHealth(HttpExchange exchange) throws IOException {
+        try {
+            int inUse = workerThreads + queueCapacity - admission.availablePermits();
+            String json = "{\"status\":\"ok\""
+                + ",\"workers\":" + workerThreads
+                + ",\"queueCapacity\":" + queueCapacity
+                + ",\"inFlight\":" + inUse
+                + ",\"completed\":" + completed.get()
+                + ",\"rejected\":" + rejected.get()
+                + ",\"failed\":" + failed.get()
+                + (resultCache != null ? ",\"cache\":" + resultCache.toJson() : "") + "}";
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            send(exchange, 200, json.getBytes(StandardCharsets.UTF_8));
+        } finally {
+            exchange.close();
+        }
+    }
+    
+    /**
+     * Membaca method, threshold, minBlock, dan format dari query string,
+     * nilai yang tidak ada memakai default yang sama dengan mode batch
+     */
+    private static Request parseRequest(String query) {
+        Map<String, String> parameters = new HashMap<>();
+        if (query != null) {
+            for (String pair : query.split("&")) {
+                int equals = pair.indexOf('=');
+                if (equals > 0) {
+                    parameters.put(
+                        URLDecoder.decode(pair.substring(0, equals), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8)
+                    );
+                }
+            }
+        }
+        
+        int method;
+        double threshold;
+        int minBlockSize;
+        try {
+            method = Integer.parseInt(parameters.getOrDefault("method", "1"));
+            threshold = Double.parseDouble(parameters.getOrDefault("threshold", "10"));
+            minBlockSize = Integer.parseInt(parameters.getOrDefault("minBlock", "4"));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Nilai parameter tidak valid: " + e.getMessage());
+        }
+        if (method < 1 || method > 4 || !(threshold >= 0) || minBlockSize < 1) {
+            throw new IllegalArgumentException("Parameter tidak valid: method 1-4, threshold >= 0, minBlock >= 1");
+        }
+        
+        String format = parameters.getOrDefault("format", "png").toLowerCase(Locale.ROOT);
+        for (String supported : OUTPUT_FORMATS) {
+            if (supported.equals(format)) {
+                return new Request(method, threshold, minBlockSize, format);
+            }
+        }
+        throw new IllegalArgumentException("Format output tidak didukung: " + format);
+    }
+    
+    private static String contentType(String format) {
+        return switch (format) {
+            case "png" -> "image/png";
+            case "jpg", "jpeg" -> "image/jpeg";
+            case "bmp" -> "image/bmp";
+            case "gif" -> "image/gif";
+            default -> "application/octet-stream";
+        };
+    }
+    
+    private static void sendText(HttpExchange exchange, int status, String message) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        send(exchange, status, (message + "\n").getBytes(StandardCharsets.UTF_8));
+    }
+    
+    /**
+     * Mengirim error jika header belum terkirim, selain itu koneksi cukup ditutup
+     */
+    private static void trySendText(HttpExchange exchange, int status, String message) {
+        try {
+            if (exchange.getResponseCode() == -1) {
+                sendText(exchange, status, message);
+            }
+        } catch (IOException e) {
+            // Klien sudah memutus koneksi
+        }
+    }
+    
+    private static void send(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(body);
+        }
+    }
+    
+    /**
+     * java CompressionServer [--host H] [--port P] [opsi]
+     */
+    public static void main(String[] args) {
+        String host = "127.0.0.1";
+        int port = DEFAULT_PORT;
+        int workers = Runtime.getRuntime().availableProcessors();
+        int queue = -1;
+        long admissionTimeout = 100;
+        int maxUpload = 64 << 20;
+        long cacheMegabytes = 0;
+        File cacheDirectory = null;
+        try {
+            for (int i = 0; i < args.length; i += 2) {
+                if (i + 1 == args.length) {
+                    System.err.println("Error: opsi " + args[i] + " membutuhkan nilai");
+                    return;
+                }
+                String value = args[i + 1];
+                switch (args[i]) {
+                    case "--host" -> host = value;
+                    case "--port" -> port = Integer.parseInt(value);
+                    case "--workers" -> workers = Integer.parseInt(value);
+                    case "--queue" -> queue = Integer.parseInt(value);
+                    case "--admission-timeout" -> admissionTimeout = Long.parseLong(value);
+                    case "--max-upload" -> maxUpload = Integer.parseInt(value);
+                    case "--cache-mb" -> cacheMegabytes = Long.parseLong(value);
+                    case "--cache-dir" -> cacheDirectory = new File(value);
+                    default -> System.out.println("Warning: opsi tidak dikenal diabaikan: " + args[i]);
+                }
+            }
+        } catch (NumberFormatException e) {
+            System.err.println("Error: nilai opsi tidak valid: " + e.getMessage());
+            return;
+        }
+        
+        CompressionServer server = new CompressionServer(host, port);
+        server.setWorkerThreads(workers);
+        server.setQueueCapacity(queue >= 0 ? queue : 2 * Math.max(1, workers));
+        server.setAdmissionTimeout(admissionTimeout);
+        server.setMaxUploadBytes(maxUpload);
+        if (cacheMegabytes > 0) {
+            server.setResultCache(new ResultCache(cacheMegabytes << 20, cacheDirectory));
+        }
+        try {
+            server.start();
+        } catch (IOException e) {
+            System.err.println("Error: server tidak bisa dimulai: " + e.getMessage());
+            return;
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> server.stop(1)));
+        
+        System.out.println("Server kompresi berjalan di http://" + host + ":" + server.getPort()
+            + " (" + workers + " worker)");
+        System.out.println("  curl --data-binary @gambar.png -o hasil.png "
+            + "'http://" + host + ":" + server.getPort() + "/compress?method=1&threshold=10&minBlock=4&format=png'");
+    }
+}
@@ -0,0 +1,218 @@
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Instrumentasi per tahap untuk satu QuadTreeCompression: waktu nanodetik tiap
+ * tahap, penghitung evaluasi error dan piksel yang dibaca, serta jumlah node per
+ * kedalaman pohon. Setiap tahap juga dikirim sebagai CompressionPhaseEvent ke JFR.
+ *
+ * Penghitung evaluasi memakai LongAdder karena builder paralel menambahkannya
+ * dari banyak thread. Waktu tahap hanya ditulis oleh thread yang menjalankan tahap
+ * itu, dan tahap-tahap tidak pernah berjalan bersamaan
+ */
+public class CompressionStats {
+    public static final int DECODE = 0;
+    public static final int EXTRACT = 1;
+    public static final int INTEGRAL = 2;
+    public static final int BUILD = 3;
+    public static final int TARGET_SEARCH = 4;
+    public static final int RENDER = 5;
+    public static final int SAVE = 6;
+    public static final int SIZE = 7;
+    public static final int CACHE = 8;
+    public static final int UPDATE = 9;
+    
+    private static final String[] PHASE_NAMES = {
+        "decode", "extract", "integral", "build", "targetSearch", "render", "save", "size", "cache", "update"
+    };
+    
+    private final long[] phaseNanos = new long[PHASE_NAMES.length];
+    private final int[] phaseCalls = new int[PHASE_NAMES.length];
+    
+    private final LongAdder errorEvaluations = new LongAdder();
+    private final LongAdder pixelsScanned = new LongAdder();
+    
+    // Dari pohon terakhir yang dirender
+    private long[] nodesPerDepth = new long[0];
+    private long leaves;
+    
+    private String source;
+    private int width;
+    private int height;
+    
+    /**
+     * Satu tahap yang sedang diukur, diakhiri dengan stop()
+     */
+    public final class Timer {
+        private final int phase;
+        private final long startTime = System.nanoTime();
+        private final long startEvaluations = errorEvaluations.sum();
+        private final CompressionPhaseEvent event = new CompressionPhaseEvent();
+        
+        private Timer(int phase) {
+            this.phase = phase;
+            event.begin();
+        }
+        
+        public void stop() {
+            long elapsed = System.nanoTime() - startTime;
+            phaseNanos[phase] += elapsed;
+            phaseCalls[phase]++;
+            
+            event.end();
+            if (event.shouldCommit()) {
+                event.phase = PHASE_NAMES[phase];
+                event.source = source;
+                event.width = width;
+                event.height = height;
+                event.errorEvaluations = errorEvaluations.sum() - startEvaluations;
+                event.commit();
+            }
+        }
+    }
+    
+    public Timer start(int phase) {
+        return new Timer(phase);
+    }
+    
+    /**
+     * Sumber gambar untuk event JFR, diisi sebelum decode
+     */
+    public void setSource(String source) {
+        this.source = source;
+    }
+    
+    public void setDimensions(int width, int height) {
+        this.width = width;
+        this.height = height;
+    }
+    
+    /**
+     * Mencatat satu evaluasi error yang membaca paling banyak scanned piksel
+     * (0 untuk evaluasi O(1) dari integral image atau piramida)
+     */
+    public void countEvaluation(long scanned) {
+        errorEvaluations.increment();
+        if (scanned > 0) {
+            pixelsScanned.add(scanned);
+        }
+    }
+    
+    /**
+     * Menambahkan sekaligus evaluasi yang dihitung sendiri oleh builder lain
+     */
+    public void addEvaluations(long evaluations, long scanned) {
+        errorEvaluations.add(evaluations);
+        pixelsScanned.add(scanned);
+    }
+    
+    /**
+     * Mencatat bentuk pohon hasil: jumlah node per kedalaman dan jumlah leaf
+     */
+    public void recordTree(QuadTreeNode root) {
+        nodesPerDepth = new long[0];
+        leaves = 0;
+        recordNode(root, 0);
+    }
+    
+    private void recordNode(QuadTreeNode node, int depth) {
+        countNode(depth);
+        if (node.isLeaf()) {
+            leaves++;
+            return;
+        }
+        recordNode(node.getNorthWest(), depth + 1);
+        recordNode(node.getNorthEast(), depth + 1);
+        recordNode(node.getSouthWest(), depth + 1);
+        recordNode(node.getSouthEast(), depth + 1);
+    }
+    
+    public void recordTree(CompactQuadTree tree) {
+        nodesPerDepth = new long[0];
+        leaves = 0;
+        recordNode(tree, CompactQuadTree.ROOT, 0);
+    }
+    
+    private void recordNode(CompactQuadTree tree, int index, int depth) {
+        countNode(depth);
+        int child = tree.getFirstChild(index);
+        if (child == CompactQuadTree.NO_CHILD) {
+            leaves++;
+            return;
+        }
+        for (int k = 0; k < 4; k++) {
+            recordNode(tree, child + k, depth + 1);
+        }
+    }
+    
+    private void countNode(int depth) {
+        if (depth >= nodesPerDepth.length) {
+            nodesPerDepth = Arrays.copyOf(nodesPerDepth, depth + 1);
+        }
+        nodesPerDepth[depth]++;
+    }
+    
+    public long getPhaseNanos(int phase) {
+        return phaseNanos[phase];
+    }
+    
+    public long getErrorEvaluations() {
+        return errorEvaluations.sum();
+    }
+    
+    public long getPixelsScanned() {
+        return pixelsScanned.sum();
+    }
+    
+    public long getNodeCount() {
+        return Arrays.stream(nodesPerDepth).sum();
+    }
+    
+    public long getSplits() {
+        return getNodeCount() - leaves;
+    }
+    
+    public long getLeaves() {
+        return leaves;
+    }
+    
+    public long[] getNodesPerDepth() {
+        return nodesPerDepth.clone();
+    }
+    
+    /**
+     * Mencetak rincian waktu tahap yang pernah dijalankan dan penghitung ke konsol
+     */
+    public void print() {
+        System.out.println("Rincian Waktu:");
+        for (int phase = 0; phase < PHASE_NAMES.length; phase++) {
+            if (phaseCalls[phase] > 0) {
+                System.out.println(String.format(Locale.ROOT, "  %-13s %10.3f ms%s", PHASE_NAMES[phase],
+                    phaseNanos[phase] / 1e6, phaseCalls[phase] > 1 ? " (" + phaseCalls[phase] + "x)" : ""));
+            }
+        }
+        System.out.println("Evaluasi Error: " + getErrorEvaluations() + " (piksel dibaca: " + getPixelsScanned() + ")");
+        System.out.println("Split: " + getSplits() + ", Leaf: " + leaves);
+        System.out.println("Node per Kedalaman: " + Arrays.toString(nodesPerDepth));
+    }
+    
+    /**
+     * Menambahkan field statistik ke objek JSON yang sedang ditulis (tanpa kurung kurawal)
+     */
+    public void appendJson(StringBuilder json) {
+        json.append("\"phasesNanos\":{");
+        boolean first = true;
+        for (int phase = 0; phase < PHASE_NAMES.length; phase++) {
+            if (phaseCalls[phase] > 0) {
+                json.append(first ? "" : ",").append('"').append(PHASE_NAMES[phase]).append("\":").append(phaseNanos[phase]);
+                first = false;
+            }
+        }
+        json.append("},\"errorEvaluations\":").append(getErrorEvaluations())
+            .append(",\"pixelsScanned\":").append(getPixelsScanned())
+            .append(",\"splits\":").append(getSplits())
+            .append(",\"leaves\":").append(leaves)
+            .append(",\"nodesPerDepth\":").append(Arrays.toString(nodesPerDepth).replace(" ", ""));
+    }
+}
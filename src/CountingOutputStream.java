@@ -0,0 +1,23 @@
+import java.io.OutputStream;
+
+/**
+ * OutputStream yang hanya menghitung jumlah byte yang ditulis dan membuang isinya.
+ * Dipakai untuk mengukur ukuran hasil encode tanpa menulis file sementara
+ */
+public class CountingOutputStream extends OutputStream {
+    private long count;
+    
+    @Override
+    public void write(int b) {
+        count++;
+    }
+    
+    @Override
+    public void write(byte[] b, int off, int len) {
+        count += len;
+    }
+    
+    public long getCount() {
+        return count;
+    }
+}
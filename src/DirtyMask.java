@@ -0,0 +1,129 @@
+import java.util.Arrays;
+
+/**
+ * Penanda bagian gambar yang berubah, dalam grid sel persegi berukuran cellSize.
+ *
+ * Sel kotor dijumlahkan dalam tabel prefix 2D, sehingga pertanyaan "apakah blok
+ * ini menyentuh sel kotor" dijawab O(1) untuk blok sembarang. Jawabannya
+ * konservatif: blok yang hanya menyentuh sebagian sel kotor tetap dianggap kotor,
+ * tetapi blok yang dianggap bersih pasti tidak berubah satu piksel pun
+ */
+public class DirtyMask implements DirtyRegion {
+    public static final int DEFAULT_CELL_SIZE = 8;
+    
+    private final int width;
+    private final int height;
+    private final int cellSize;
+    private final int columns;
+    private final int rows;
+    private final boolean[] dirty;
+    
+    // prefix[(row + 1) * (columns + 1) + column + 1] = jumlah sel kotor di [0, row] x [0, column]
+    private int[] prefix;
+    private int dirtyCells;
+    
+    private DirtyMask(int width, int height, int cellSize) {
+        if (cellSize < 1) {
+            throw new IllegalArgumentException("Ukuran sel minimal 1");
+        }
+        this.width = width;
+        this.height = height;
+        this.cellSize = cellSize;
+        this.columns = (width + cellSize - 1) / cellSize;
+        this.rows = (height + cellSize - 1) / cellSize;
+        this.dirty = new boolean[columns * rows];
+    }
+    
+    /**
+     * Membandingkan dua frame berukuran sama. Setiap baris dibandingkan per bidang
+     * warna dengan Arrays.mismatch, yang melompati rentang sama dengan perbandingan
+     * lebar, lalu pencarian dilanjutkan dari sel berikutnya
+     */
+    public static DirtyMask diff(PixelBuffer previous, PixelBuffer current, int cellSize) {
+        if (previous.getWidth() != current.getWidth() || previous.getHeight() != current.getHeight()) {
+            throw new IllegalArgumentException("Ukuran frame berbeda");
+        }
+        
+        DirtyMask mask = new DirtyMask(current.getWidth(), current.getHeight(), cellSize);
+        byte[][] before = {previous.getRed(), previous.getGreen(), previous.getBlue()};
+        byte[][] after = {current.getRed(), current.getGreen(), current.getBlue()};
+        int width = current.getWidth();
+        
+        for (int y = 0; y < current.getHeight(); y++) {
+            int rowStart = y * width;
+            int rowEnd = rowStart + width;
+            int cellRow = (y / cellSize) * mask.columns;
+            
+            for (int plane = 0; plane < 3; plane++) {
+                int x = 0;
+                while (x < width) {
+                    int mismatch = Arrays.mismatch(before[plane], rowStart + x, rowEnd, after[plane], rowStart + x, rowEnd);
+                    if (mismatch < 0) {
+                        break;
+                    }
+                    int column = (x + mismatch) / cellSize;
+                    mask.dirty[cellRow + column] = true;
+                    x = (column + 1) * cellSize;
+                }
+            }
+        }
+        
+        mask.finish();
+        return mask;
+    }
+    
+    /**
+     * Membangun tabel prefix setelah semua sel kotor ditandai
+     */
+    private void finish() {
+        int stride = columns + 1;
+        prefix = new int[(rows + 1) * stride];
+        dirtyCells = 0;
+        for (int row = 0; row < rows; row++) {
+            int rowCount = 0;
+            for (int column = 0; column < columns; column++) {
+                if (dirty[row * columns + column]) {
+                    rowCount++;
+                }
+                prefix[(row + 1) * stride + column + 1] = prefix[row * stride + column + 1] + rowCount;
+            }
+            dirtyCells += rowCount;
+        }
+    }
+    
+    /**
+     * Apakah blok menyentuh setidaknya satu sel kotor
+     */
+    @Override
+    public boolean intersects(int x, int y, int blockWidth, int blockHeight) {
+        int right = Math.min(x + blockWidth, width);
+        int bottom = Math.min(y + blockHeight, height);
+        if (right <= x || bottom <= y || dirtyCells == 0) {
+            return false;
+        }
+        
+        int stride = columns + 1;
+        int left = Math.max(x, 0) / cellSize;
+        int top = Math.max(y, 0) / cellSize;
+        int last = (right - 1) / cellSize + 1;
+        int end = (bottom - 1) / cellSize + 1;
+        return prefix[end * stride + last] - prefix[end * stride + left]
+             - prefix[top * stride + last] + prefix[top * stride + left] > 0;
+    }
+    
+    @Override
+    public boolean isEmpty() {
+        return dirtyCells == 0;
+    }
+    
+    /**
+     * Bagian sel yang kotor, 0.0-1.0
+     */
+    public double getDirtyFraction() {
+        return dirty.length == 0 ? 0 : (double) dirtyCells / dirty.length;
+    }
+    
+    public int getCellSize() {
+        return cellSize;
+    }
+}
@@ -0,0 +1,37 @@
+/**
+ * Bagian gambar yang pikselnya berubah, dipakai MomentPyramid dan
+ * IncrementalTreeUpdater untuk memilih blok yang perlu dihitung ulang.
+ * Jawaban intersects boleh konservatif, tetapi blok yang dianggap tidak
+ * bersinggungan harus benar-benar tidak berubah
+ */
+public interface DirtyRegion {
+    /**
+     * Apakah blok menyentuh bagian yang berubah
+     */
+    boolean intersects(int x, int y, int width, int height);
+    
+    /**
+     * Apakah tidak ada piksel yang berubah sama sekali
+     */
+    boolean isEmpty();
+    
+    /**
+     * Satu persegi panjang yang berubah, misalnya hasil edit lokal. Tidak
+     * mengalokasikan apa pun seukuran gambar, setiap pertanyaan O(1)
+     */
+    static DirtyRegion rectangle(int x, int y, int width, int height) {
+        return new DirtyRegion() {
+            @Override
+            public boolean intersects(int blockX, int blockY, int blockWidth, int blockHeight) {
+                return !isEmpty()
+                    && blockX < x + width && x < blockX + blockWidth
+                    && blockY < y + height && y < blockY + blockHeight;
+            }
+            
+            @Override
+            public boolean isEmpty() {
+                return width <= 0 || height <= 0;
+            }
+        };
+    }
+}
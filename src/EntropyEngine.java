@@ -0,0 +1,220 @@
+import java.util.Arrays;
+
+/**
+ * Perhitungan entropy blok yang cepat.
+ *
+ * Entropy satu kanal dengan histogram c dan n piksel adalah
+ * H = log2(n) - sum(c * log2(c)) / n = (n log2 n - sum(c log2 c)) / n,
+ * sehingga cukup satu tabel n * log2(n) tanpa pembagian dan logaritma per bin.
+ *
+ * Untuk seluruh pohon potensial (ErrorTree dan pembangunan bottom-up), histogram
+ * node dibentuk dari jumlah histogram keempat anaknya, bukan dari membaca ulang
+ * piksel di setiap level. Blok kecil dipindai langsung karena lebih murah daripada
+ * menjumlahkan 3 x 256 bin
+ */
+public final class EntropyEngine {
+    // Kanal R, G, B disimpan berurutan dalam satu array histogram
+    public static final int HISTOGRAM_LENGTH = 3 * 256;
+    
+    // Ukuran tabel n * log2(n), nilai di atasnya dihitung langsung
+    private static final int TABLE_SIZE = 1 << 16;
+    private static final double[] N_LOG2_N = new double[TABLE_SIZE];
+    
+    // Blok dengan luas sampai batas ini dipindai langsung, tidak digabung dari anak
+    private static final int SCAN_CUTOFF = 256;
+    
+    private static final double LN_2 = Math.log(2);
+    
+    static {
+        for (int n = 1; n < TABLE_SIZE; n++) {
+            N_LOG2_N[n] = n * (Math.log(n) / LN_2);
+        }
+    }
+    
+    private EntropyEngine() {
+    }
+    
+    /**
+     * n * log2(n), dengan 0 untuk n = 0
+     */
+    public static double nLog2n(long n) {
+        return n < TABLE_SIZE ? N_LOG2_N[(int) n] : n * (Math.log(n) / LN_2);
+    }
+    
+    /**
+     * Rata-rata entropy ketiga kanal dari histogram gabungan R, G, B
+     */
+    public static double entropy(int[] histogram, long pixelCount) {
+        if (pixelCount <= 0) {
+            return 0;
+        }
+        double sum = 0;
+        for (int count : histogram) {
+            sum += nLog2n(count);
+        }
+        return (3 * nLog2n(pixelCount) - sum) / (3.0 * pixelCount);
+    }
+    
+    /**
+     * Entropy satu blok dengan memindai pikselnya. scratch harus berisi nol
+     * (panjang HISTOGRAM_LENGTH) dan dikembalikan dalam keadaan nol lagi
+     */
+    public static double blockEntropy(PixelBuffer pixels, int x, int y, int width, int height, int[] scratch) {
+        int right = Math.min(x + width, pixels.getWidth());
+        int bottom = Math.min(y + height, pixels.getHeight());
+        long pixelCount = (long) Math.max(0, right - x) * Math.max(0, bottom - y);
+        if (pixelCount == 0) {
+            return 0;
+        }
+        
+        accumulate(pixels, x, y, right, bottom, scratch);
+        if (pixelCount > SCAN_CUTOFF) {
+            double entropy = entropy(scratch, pixelCount);
+            Arrays.fill(scratch, 0);
+            return entropy;
+        }
+        
+        // Blok kecil: bin yang terisi dikunjungi lewat pikselnya sendiri, sekaligus dinolkan
+        byte[] red = pixels.getRed();
+        byte[] green = pixels.getGreen();
+        byte[] blue = pixels.getBlue();
+        double sum = 0;
+        for (int j = y; j < bottom; j++) {
+            int offset = j * pixels.getWidth();
+            for (int i = offset + x; i < offset + right; i++) {
+                sum += takeBin(scratch, red[i] & 0xFF);
+                sum += takeBin(scratch, 256 + (green[i] & 0xFF));
+                sum += takeBin(scratch, 512 + (blue[i] & 0xFF));
+            }
+        }
+        return (3 * nLog2n(pixelCount) - sum) / (3.0 * pixelCount);
+    }
+    
+    private static double takeBin(int[] histogram, int bin) {
+        int count = histogram[bin];
+        if (count == 0) {
+            return 0;
+        }
+        histogram[bin] = 0;
+        return nLog2n(count);
+    }
+    
+    private static void accumulate(PixelBuffer pixels, int x, int y, int right, int bottom, int[] histogram) {
+        byte[] red = pixels.getRed();
+        byte[] green = pixels.getGreen();
+        byte[] blue = pixels.getBlue();
+        for (int j = y; j < bottom; j++) {
+            int offset = j * pixels.getWidth();
+            for (int i = offset + x; i < offset + right; i++) {
+                histogram[red[i] & 0xFF]++;
+                histogram[256 + (green[i] & 0xFF)]++;
+                histogram[512 + (blue[i] & 0xFF)]++;
+            }
+        }
+    }
+    
+    /**
+     * Menghitung entropy setiap node yang bisa dibagi di pohon potensial, dengan
+     * tata letak indeks yang sama seperti MomentPyramid dan ErrorTree (keempat anak
+     * berurutan, dialokasikan pre-order). Node yang tidak bisa dibagi bernilai 0
+     */
+    public static double[] potentialTreeEntropy(PixelBuffer pixels, int minBlockSize) {
+        int nodes = MomentPyramid.countNodes(pixels.getWidth(), pixels.getHeight(), minBlockSize);
+        PotentialTree tree = new PotentialTree(pixels, minBlockSize, new double[nodes]);
+        tree.build(MomentPyramid.ROOT, 0, 0, pixels.getWidth(), pixels.getHeight(), 0, null);
+        return tree.entropy;
+    }
+    
+    /**
+     * Traversal pohon potensial. Setiap level rekursi punya satu histogram sendiri
+     * yang dipakai ulang, sehingga memori tambahan hanya sebanding kedalaman pohon
+     */
+    private static final class PotentialTree {
+        private final PixelBuffer pixels;
+        private final int minBlockSize;
+        private final double[] entropy;
+        private int[][] levels = new int[0][];
+        private final int[] scratch = new int[HISTOGRAM_LENGTH];
+        private int size = 1;
+        
+        PotentialTree(PixelBuffer pixels, int minBlockSize, double[] entropy) {
+            this.pixels = pixels;
+            this.minBlockSize = minBlockSize;
+            this.entropy = entropy;
+        }
+        
+        /**
+         * Mengisi entropy subtree dan, jika parent tidak null, menambahkan
+         * histogram blok ini ke histogram parent
+         */
+        void build(int index, int x, int y, int width, int height, int depth, int[] parent) {
+            boolean splittable = QuadTreeNode.isSplittable(width, height, minBlockSize);
+            long area = (long) width * height;
+            
+            if (area <= SCAN_CUTOFF) {
+                // Blok kecil beserta seluruh subtree-nya dihitung dengan pemindaian langsung
+                scanSubtree(index, x, y, width, height, splittable);
+                if (parent != null) {
+                    accumulate(pixels, x, y, x + width, y + height, parent);
+                }
+                return;
+            }
+            
+            if (!splittable) {
+                if (parent != null) {
+                    accumulate(pixels, x, y, x + width, y + height, parent);
+                }
+                return;
+            }
+            
+            int child = size;
+            size += 4;
+            
+            int[] histogram = level(depth);
+            int westWidth = (width + 1) / 2;
+            int northHeight = (height + 1) / 2;
+            build(child, x, y, westWidth, northHeight, depth + 1, histogram);
+            build(child + 1, x + westWidth, y, width - westWidth, northHeight, depth + 1, histogram);
+            build(child + 2, x, y + northHeight, westWidth, height - northHeight, depth + 1, histogram);
+            build(child + 3, x + westWidth, y + northHeight, width - westWidth, height - northHeight, depth + 1, histogram);
+            
+            entropy[index] = EntropyEngine.entropy(histogram, area);
+            if (parent != null) {
+                for (int i = 0; i < HISTOGRAM_LENGTH; i++) {
+                    parent[i] += histogram[i];
+                }
+            }
+            Arrays.fill(histogram, 0);
+        }
+        
+        private void scanSubtree(int index, int x, int y, int width, int height, boolean splittable) {
+            if (!splittable) {
+                return;
+            }
+            entropy[index] = blockEntropy(pixels, x, y, width, height, scratch);
+            
+            int child = size;
+            size += 4;
+            int westWidth = (width + 1) / 2;
+            int northHeight = (height + 1) / 2;
+            scanSubtree(child, x, y, westWidth, northHeight,
+                QuadTreeNode.isSplittable(westWidth, northHeight, minBlockSize));
+            scanSubtree(child + 1, x + westWidth, y, width - westWidth, northHeight,
+                QuadTreeNode.isSplittable(width - westWidth, northHeight, minBlockSize));
+            scanSubtree(child + 2, x, y + northHeight, westWidth, height - northHeight,
+                QuadTreeNode.isSplittable(westWidth, height - northHeight, minBlockSize));
+            scanSubtree(child + 3, x + westWidth, y + northHeight, width - westWidth, height - northHeight,
+                QuadTreeNode.isSplittable(width - westWidth, height - northHeight, minBlockSize));
+        }
+        
+        private int[] level(int depth) {
+            if (depth >= levels.length) {
+                levels = Arrays.copyOf(levels, depth + 1);
+            }
+            if (levels[depth] == null) {
+                levels[depth] = new int[HISTOGRAM_LENGTH];
+            }
+            return levels[depth];
+        }
+    }
+}
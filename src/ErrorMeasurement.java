@@ -6,12 +6,38 @@ public interface ErrorMeasurement {
     /**
      * Menghitung error untuk blok gambar tertentu
      * 
-     * @param image Gambar yang diproses
+     * @param pixels Buffer piksel gambar yang diproses
      * @param x Koordinat X awal blok
      * @param y Koordinat Y awal blok
      * @param width Lebar blok
      * @param height Tinggi blok
      * @return Nilai error (semakin tinggi berarti semakin tidak seragam)
      */
-    double calculateError(BufferedImage image, int x, int y, int width, int height);
+    double calculateError(PixelBuffer pixels, int x, int y, int width, int height);
+    
+    /**
+     * Memeriksa apakah error blok melebihi threshold, tanpa harus menghitung nilai
+     * error eksaknya. Hasilnya selalu sama dengan calculateError(...) > threshold,
+     * tetapi implementasi boleh berhenti memindai begitu jawabannya sudah pasti
+     * 
+     * @param threshold Batas error
+     * @return true jika error blok lebih besar dari threshold
+     */
+    default boolean exceeds(PixelBuffer pixels, int x, int y, int width, int height, double threshold) {
+        return calculateError(pixels, x, y, width, height) > threshold;
+    }
+    
+    /**
+     * Versi BufferedImage, hanya blok yang diminta yang diekstrak ke PixelBuffer.
+     * Untuk banyak pemanggilan pada gambar yang sama, ekstrak PixelBuffer sekali saja
+     */
+    default double calculateError(BufferedImage image, int x, int y, int width, int height) {
+        int blockWidth = Math.min(width, image.getWidth() - x);
+        int blockHeight = Math.min(height, image.getHeight() - y);
+        if (blockWidth <= 0 || blockHeight <= 0) {
+            return 0;
+        }
+        PixelBuffer block = PixelBuffer.fromImage(image.getSubimage(x, y, blockWidth, blockHeight));
+        return calculateError(block, 0, 0, blockWidth, blockHeight);
+    }
 }
\ No newline at end of file
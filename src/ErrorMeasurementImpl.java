@@ -1,5 +1,3 @@
-import java.awt.Color;
-import java.awt.image.BufferedImage;
 /**
  * Implementasi dari metode pengukuran error
  */
@@ -9,203 +7,293 @@ public class ErrorMeasurementImpl implements ErrorMeasurement {
     public static final int MAX_PIXEL_DIFFERENCE = 3;
     public static final int ENTROPY = 4;
     
+    // Di bawah batas ini akumulasi n * c dan n * sum(c^2) dijamin muat di long
+    private static final long EXACT_PIXEL_LIMIT = 1L << 20;
+    
+    // Margin relatif untuk batas bawah variansi yang dihitung dengan pembulatan berbeda
+    private static final double BOUND_MARGIN = 1e-9;
+    
+    // Histogram kerja untuk entropy, satu per thread karena builder paralel berbagi objek ini
+    private static final ThreadLocal<int[]> ENTROPY_HISTOGRAM =
+        ThreadLocal.withInitial(() -> new int[EntropyEngine.HISTOGRAM_LENGTH]);
+    
     private final int method;
     
+    // Opsional, dipakai untuk rata-rata dan variansi O(1) jika dibangun dari buffer yang sama
+    private final IntegralImage integralImage;
+    
     public ErrorMeasurementImpl(int method) {
+        this(method, null);
+    }
+    
+    public ErrorMeasurementImpl(int method, IntegralImage integralImage) {
         this.method = method;
+        this.integralImage = integralImage;
+    }
+    
+    public int getMethod() {
+        return method;
+    }
+    
+    @Override
+    public double calculateError(PixelBuffer pixels, int x, int y, int width, int height) {
+        return switch (method) {
+            case VARIANCE -> calculateVariance(pixels, x, y, width, height);
+            case MEAN_ABSOLUTE_DEVIATION -> calculateMAD(pixels, x, y, width, height);
+            case MAX_PIXEL_DIFFERENCE -> calculateMaxPixelDifference(pixels, x, y, width, height);
+            case ENTROPY -> calculateEntropy(pixels, x, y, width, height);
+            default -> calculateVariance(pixels, x, y, width, height);
+        };
     }
     
+    /**
+     * Versi early-exit: pemindaian berhenti di akhir baris pertama yang sudah
+     * membuktikan error di atas threshold. Blok yang seragam tetap dipindai penuh
+     */
     @Override
-    public double calculateError(BufferedImage image, int x, int y, int width, int height) {
+    public boolean exceeds(PixelBuffer pixels, int x, int y, int width, int height, double threshold) {
         return switch (method) {
-            case VARIANCE -> calculateVariance(image, x, y, width, height);
-            case MEAN_ABSOLUTE_DEVIATION -> calculateMAD(image, x, y, width, height);
-            case MAX_PIXEL_DIFFERENCE -> calculateMaxPixelDifference(image, x, y, width, height);
-            case ENTROPY -> calculateEntropy(image, x, y, width, height);
-            default -> calculateVariance(image, x, y, width, height);
+            case VARIANCE -> integralImage != null && integralImage.isBuiltFrom(pixels)
+                ? integralImage.getVariance(x, y, width, height) > threshold
+                : varianceExceeds(pixels, x, y, width, height, threshold);
+            case MEAN_ABSOLUTE_DEVIATION -> madExceeds(pixels, x, y, width, height, threshold);
+            case MAX_PIXEL_DIFFERENCE -> maxPixelDifferenceExceeds(pixels, x, y, width, height, threshold);
+            case ENTROPY -> calculateEntropy(pixels, x, y, width, height) > threshold;
+            default -> calculateError(pixels, x, y, width, height) > threshold;
         };
     }
     
+    /**
+     * Menghitung variansi rata-rata ketiga kanal dari jumlah dan jumlah kuadrat.
+     * Var = (n * sum(c^2) - sum(c)^2) / n^2, eksak untuk blok yang tidak terlalu besar
+     */
+    public static double varianceFromSums(long pixelCount, long sumRed, long sumGreen, long sumBlue, long sumSquares) {
+        if (pixelCount <= 0) {
+            return 0;
+        }
+        
+        if (pixelCount <= EXACT_PIXEL_LIMIT) {
+            long numerator = pixelCount * sumSquares - (sumRed * sumRed + sumGreen * sumGreen + sumBlue * sumBlue);
+            return (double) numerator / ((double) pixelCount * pixelCount) / 3.0;
+        }
+        
+        double n = pixelCount;
+        double avgRed = sumRed / n;
+        double avgGreen = sumGreen / n;
+        double avgBlue = sumBlue / n;
+        double variance = sumSquares / n - (avgRed * avgRed + avgGreen * avgGreen + avgBlue * avgBlue);
+        return Math.max(0, variance) / 3.0;
+    }
+    
     /**
      * Menghitung variansi sesuai rumus dalam tugas
      */
-    private double calculateVariance(BufferedImage image, int x, int y, int width, int height) {
-        // Hitung rata-rata untuk setiap kanal warna
-        double[] avgValues = calculateAverages(image, x, y, width, height);
-        double avgRed = avgValues[0];
-        double avgGreen = avgValues[1];
-        double avgBlue = avgValues[2];
-        
-        double sumRedVariance = 0;
-        double sumGreenVariance = 0;
-        double sumBlueVariance = 0;
-        int pixelCount = 0;
-        
-        // Hitung sum of squared differences
-        for (int i = x; i < x + width && i < image.getWidth(); i++) {
-            for (int j = y; j < y + height && j < image.getHeight(); j++) {
-                Color color = new Color(image.getRGB(i, j));
-                
-                sumRedVariance += Math.pow(color.getRed() - avgRed, 2);
-                sumGreenVariance += Math.pow(color.getGreen() - avgGreen, 2);
-                sumBlueVariance += Math.pow(color.getBlue() - avgBlue, 2);
-                
-                pixelCount++;
-            }
+    private double calculateVariance(PixelBuffer pixels, int x, int y, int width, int height) {
+        if (integralImage != null && integralImage.isBuiltFrom(pixels)) {
+            return integralImage.getVariance(x, y, width, height);
         }
         
-        // Hitung variansi setiap kanal
-        double varianceRed = pixelCount > 0 ? sumRedVariance / pixelCount : 0;
-        double varianceGreen = pixelCount > 0 ? sumGreenVariance / pixelCount : 0;
-        double varianceBlue = pixelCount > 0 ? sumBlueVariance / pixelCount : 0;
+        int right = Math.min(x + width, pixels.getWidth());
+        int bottom = Math.min(y + height, pixels.getHeight());
+        
+        // Satu pass: jumlah dan jumlah kuadrat, baris demi baris
+        long[] sums = new long[4];
+        for (int j = y; j < bottom && right > x; j++) {
+            PixelKernels.INSTANCE.sums(pixels.getRed(), pixels.getGreen(), pixels.getBlue(),
+                j * pixels.getWidth() + x, right - x, sums);
+        }
         
-        // Rata-rata variansi dari ketiga kanal
-        return (varianceRed + varianceGreen + varianceBlue) / 3.0;
+        long pixelCount = (long) Math.max(0, right - x) * Math.max(0, bottom - y);
+        return varianceFromSums(pixelCount, sums[0], sums[1], sums[2], sums[3]);
     }
     
     /**
-     * Menghitung Mean Absolute Deviation sesuai rumus
+     * Variansi > threshold tanpa integral image. Jumlah kuadrat deviasi baris-baris
+     * yang sudah dipindai terhadap rata-ratanya sendiri tidak pernah lebih besar dari
+     * kontribusinya terhadap rata-rata seluruh blok, sehingga menjadi batas bawah
+     * variansi akhir
      */
-    private double calculateMAD(BufferedImage image, int x, int y, int width, int height) {
-        // Hitung rata-rata untuk setiap kanal warna
-        double[] avgValues = calculateAverages(image, x, y, width, height);
-        double avgRed = avgValues[0];
-        double avgGreen = avgValues[1];
-        double avgBlue = avgValues[2];
-        
-        double sumRedMAD = 0;
-        double sumGreenMAD = 0;
-        double sumBlueMAD = 0;
-        int pixelCount = 0;
-        
-        // Hitung sum of absolute differences
-        for (int i = x; i < x + width && i < image.getWidth(); i++) {
-            for (int j = y; j < y + height && j < image.getHeight(); j++) {
-                Color color = new Color(image.getRGB(i, j));
-                
-                sumRedMAD += Math.abs(color.getRed() - avgRed);
-                sumGreenMAD += Math.abs(color.getGreen() - avgGreen);
-                sumBlueMAD += Math.abs(color.getBlue() - avgBlue);
-                
-                pixelCount++;
-            }
+    private boolean varianceExceeds(PixelBuffer pixels, int x, int y, int width, int height, double threshold) {
+        int right = Math.min(x + width, pixels.getWidth());
+        int bottom = Math.min(y + height, pixels.getHeight());
+        long pixelCount = (long) Math.max(0, right - x) * Math.max(0, bottom - y);
+        if (pixelCount == 0 || pixelCount > EXACT_PIXEL_LIMIT) {
+            return calculateVariance(pixels, x, y, width, height) > threshold;
         }
         
-        // Hitung MAD setiap kanal
-        double madRed = pixelCount > 0 ? sumRedMAD / pixelCount : 0;
-        double madGreen = pixelCount > 0 ? sumGreenMAD / pixelCount : 0;
-        double madBlue = pixelCount > 0 ? sumBlueMAD / pixelCount : 0;
+        long[] sums = new long[4];
+        long scanned = 0;
         
-        // Rata-rata MAD dari ketiga kanal
-        return (madRed + madGreen + madBlue) / 3.0;
+        for (int j = y; j < bottom; j++) {
+            PixelKernels.INSTANCE.sums(pixels.getRed(), pixels.getGreen(), pixels.getBlue(),
+                j * pixels.getWidth() + x, right - x, sums);
+            scanned += right - x;
+            long sumRed = sums[0], sumGreen = sums[1], sumBlue = sums[2], sumSquares = sums[3];
+            
+            // n_p * SSD_p = n_p * sum(c^2) - sum(c)^2, lalu SSD_p / n / 3 sebagai batas bawah.
+            // Urutan pembulatannya beda dari varianceFromSums, jadi harus melewati threshold dengan margin
+            long numerator = scanned * sumSquares - (sumRed * sumRed + sumGreen * sumGreen + sumBlue * sumBlue);
+            double bound = (double) numerator / scanned / pixelCount / 3.0;
+            if (bound > threshold + Math.abs(threshold) * BOUND_MARGIN) {
+                return true;
+            }
+        }
+        
+        return varianceFromSums(pixelCount, sums[0], sums[1], sums[2], sums[3]) > threshold;
     }
     
     /**
-     * Menghitung Max Pixel Difference sesuai rumus
+     * Menghitung Mean Absolute Deviation sesuai rumus
      */
-    private double calculateMaxPixelDifference(BufferedImage image, int x, int y, int width, int height) {
-        int minRed = 255, minGreen = 255, minBlue = 255;
-        int maxRed = 0, maxGreen = 0, maxBlue = 0;
+    private double calculateMAD(PixelBuffer pixels, int x, int y, int width, int height) {
+        long[] sums = calculateSums(pixels, x, y, width, height);
+        long pixelCount = sums[3];
+        if (pixelCount == 0) {
+            return 0;
+        }
         
-        // Cari nilai min dan max untuk setiap kanal
-        for (int i = x; i < x + width && i < image.getWidth(); i++) {
-            for (int j = y; j < y + height && j < image.getHeight(); j++) {
-                Color color = new Color(image.getRGB(i, j));
-                
-                minRed = Math.min(minRed, color.getRed());
-                minGreen = Math.min(minGreen, color.getGreen());
-                minBlue = Math.min(minBlue, color.getBlue());
-                
-                maxRed = Math.max(maxRed, color.getRed());
-                maxGreen = Math.max(maxGreen, color.getGreen());
-                maxBlue = Math.max(maxBlue, color.getBlue());
+        byte[] red = pixels.getRed();
+        byte[] green = pixels.getGreen();
+        byte[] blue = pixels.getBlue();
+        int right = Math.min(x + width, pixels.getWidth());
+        int bottom = Math.min(y + height, pixels.getHeight());
+        
+        // |c - sum/n| * n = |n * c - sum|, sehingga deviasi bisa dijumlah eksak dalam integer
+        long n = pixelCount;
+        long sumMAD = 0;
+        double overflowMAD = 0;
+        
+        for (int j = y; j < bottom; j++) {
+            sumMAD += PixelKernels.INSTANCE.absoluteDeviation(
+                red, green, blue, j * pixels.getWidth() + x, right - x, sums
+            );
+            
+            if (n > EXACT_PIXEL_LIMIT) {
+                // Untuk blok sangat besar pindahkan akumulasi ke double setiap baris
+                overflowMAD += (double) sumMAD;
+                sumMAD = 0;
             }
         }
         
-        // Hitung selisih max-min setiap kanal
-        double diffRed = maxRed - minRed;
-        double diffGreen = maxGreen - minGreen;
-        double diffBlue = maxBlue - minBlue;
+        double totalMAD = overflowMAD + (double) sumMAD;
         
-        // Rata-rata selisih dari ketiga kanal
-        return (diffRed + diffGreen + diffBlue) / 3.0;
+        // Rata-rata MAD dari ketiga kanal
+        return totalMAD / ((double) n * n) / 3.0;
     }
     
     /**
-     * Menghitung Entropy sesuai rumus
+     * MAD > threshold. Rata-rata blok diambil dulu (O(1) dengan integral image), lalu
+     * jumlah deviasi yang hanya bisa bertambah dibandingkan dengan batasnya setiap baris
      */
-    private double calculateEntropy(BufferedImage image, int x, int y, int width, int height) {
-        // Hitung histogram untuk setiap kanal (0-255)
-        int[] histRed = new int[256];
-        int[] histGreen = new int[256];
-        int[] histBlue = new int[256];
-        int pixelCount = 0;
-        
-        // Bangun histogram
-        for (int i = x; i < x + width && i < image.getWidth(); i++) {
-            for (int j = y; j < y + height && j < image.getHeight(); j++) {
-                Color color = new Color(image.getRGB(i, j));
-                
-                histRed[color.getRed()]++;
-                histGreen[color.getGreen()]++;
-                histBlue[color.getBlue()]++;
-                
-                pixelCount++;
+    private boolean madExceeds(PixelBuffer pixels, int x, int y, int width, int height, double threshold) {
+        long[] sums = calculateSums(pixels, x, y, width, height);
+        long n = sums[3];
+        if (n == 0 || n > EXACT_PIXEL_LIMIT) {
+            return calculateMAD(pixels, x, y, width, height) > threshold;
+        }
+        
+        byte[] red = pixels.getRed();
+        byte[] green = pixels.getGreen();
+        byte[] blue = pixels.getBlue();
+        int right = Math.min(x + width, pixels.getWidth());
+        int bottom = Math.min(y + height, pixels.getHeight());
+        
+        long sumMAD = 0;
+        
+        for (int j = y; j < bottom; j++) {
+            sumMAD += PixelKernels.INSTANCE.absoluteDeviation(
+                red, green, blue, j * pixels.getWidth() + x, right - x, sums
+            );
+            
+            // Rumus yang sama dengan calculateMAD, pada jumlah parsial
+            if ((double) sumMAD / ((double) n * n) / 3.0 > threshold) {
+                return true;
             }
         }
+        return false;
+    }
+    
+    /**
+     * Max Pixel Difference > threshold. Rentang min-max tiap kanal hanya bisa
+     * melebar, jadi pemindaian berhenti begitu rentangnya melewati threshold
+     */
+    private boolean maxPixelDifferenceExceeds(PixelBuffer pixels, int x, int y, int width, int height,
+                                              double threshold) {
+        int[] range = {255, 255, 255, 0, 0, 0};
+        int right = Math.min(x + width, pixels.getWidth());
+        int bottom = Math.min(y + height, pixels.getHeight());
         
-        // Hitung entropy untuk setiap kanal
-        double entropyRed = 0;
-        double entropyGreen = 0;
-        double entropyBlue = 0;
-        
-        if (pixelCount > 0) {
-            for (int i = 0; i < 256; i++) {
-                if (histRed[i] > 0) {
-                    double probabilityRed = (double) histRed[i] / pixelCount;
-                    entropyRed -= probabilityRed * (Math.log(probabilityRed) / Math.log(2));
-                }
-                
-                if (histGreen[i] > 0) {
-                    double probabilityGreen = (double) histGreen[i] / pixelCount;
-                    entropyGreen -= probabilityGreen * (Math.log(probabilityGreen) / Math.log(2));
-                }
-                
-                if (histBlue[i] > 0) {
-                    double probabilityBlue = (double) histBlue[i] / pixelCount;
-                    entropyBlue -= probabilityBlue * (Math.log(probabilityBlue) / Math.log(2));
-                }
+        for (int j = y; j < bottom && right > x; j++) {
+            PixelKernels.INSTANCE.minMax(pixels.getRed(), pixels.getGreen(), pixels.getBlue(),
+                j * pixels.getWidth() + x, right - x, range);
+            if (rangeDifference(range) > threshold) {
+                return true;
             }
         }
+        return false;
+    }
+    
+    /**
+     * Menghitung Max Pixel Difference sesuai rumus
+     */
+    private double calculateMaxPixelDifference(PixelBuffer pixels, int x, int y, int width, int height) {
+        int[] range = {255, 255, 255, 0, 0, 0};
+        int right = Math.min(x + width, pixels.getWidth());
+        int bottom = Math.min(y + height, pixels.getHeight());
         
-        // Rata-rata entropy dari ketiga kanal
-        return (entropyRed + entropyGreen + entropyBlue) / 3.0;
+        // Cari nilai min dan max untuk setiap kanal
+        for (int j = y; j < bottom && right > x; j++) {
+            PixelKernels.INSTANCE.minMax(pixels.getRed(), pixels.getGreen(), pixels.getBlue(),
+                j * pixels.getWidth() + x, right - x, range);
+        }
+        return rangeDifference(range);
     }
     
     /**
-     * Helper method untuk menghitung rata-rata RGB
+     * Rata-rata selisih max-min ketiga kanal dari {minRed, minGreen, minBlue, maxRed, maxGreen, maxBlue}
      */
-    private double[] calculateAverages(BufferedImage image, int x, int y, int width, int height) {
-        long sumRed = 0, sumGreen = 0, sumBlue = 0;
-        int pixelCount = 0;
-        
-        for (int i = x; i < x + width && i < image.getWidth(); i++) {
-            for (int j = y; j < y + height && j < image.getHeight(); j++) {
-                Color color = new Color(image.getRGB(i, j));
-                sumRed += color.getRed();
-                sumGreen += color.getGreen();
-                sumBlue += color.getBlue();
-                pixelCount++;
-            }
+    private static double rangeDifference(int[] range) {
+        // Hitung selisih max-min setiap kanal
+        double diffRed = range[3] - range[0];
+        double diffGreen = range[4] - range[1];
+        double diffBlue = range[5] - range[2];
+        
+        // Rata-rata selisih dari ketiga kanal
+        return (diffRed + diffGreen + diffBlue) / 3.0;
+    }
+    
+    /**
+     * Menghitung Entropy sesuai rumus. Histogram per thread dipakai ulang dan
+     * n * log2(n) diambil dari tabel (lihat EntropyEngine)
+     */
+    private double calculateEntropy(PixelBuffer pixels, int x, int y, int width, int height) {
+        return EntropyEngine.blockEntropy(pixels, x, y, width, height, ENTROPY_HISTOGRAM.get());
+    }
+    
+    /**
+     * Helper method untuk menghitung jumlah RGB dan jumlah piksel {sumRed, sumGreen, sumBlue, n}
+     */
+    private long[] calculateSums(PixelBuffer pixels, int x, int y, int width, int height) {
+        if (integralImage != null && integralImage.isBuiltFrom(pixels)) {
+            return new long[] {
+                integralImage.getSumRed(x, y, width, height),
+                integralImage.getSumGreen(x, y, width, height),
+                integralImage.getSumBlue(x, y, width, height),
+                integralImage.getPixelCount(x, y, width, height)
+            };
         }
         
-        double[] averages = new double[3];
-        if (pixelCount > 0) {
-            averages[0] = (double) sumRed / pixelCount;
-            averages[1] = (double) sumGreen / pixelCount;
-            averages[2] = (double) sumBlue / pixelCount;
+        int right = Math.min(x + width, pixels.getWidth());
+        int bottom = Math.min(y + height, pixels.getHeight());
+        
+        long[] sums = new long[4];
+        for (int j = y; j < bottom && right > x; j++) {
+            PixelKernels.INSTANCE.sums(pixels.getRed(), pixels.getGreen(), pixels.getBlue(),
+                j * pixels.getWidth() + x, right - x, sums);
         }
         
-        return averages;
+        // Posisi terakhir dipakai untuk jumlah piksel, jumlah kuadrat tidak dibutuhkan di sini
+        sums[3] = (long) Math.max(0, right - x) * Math.max(0, bottom - y);
+        return sums;
     }
-}
\ No newline at end of file
+}
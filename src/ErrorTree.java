@@ -0,0 +1,236 @@
+import java.util.Arrays;
+import java.util.function.DoublePredicate;
+
+/**
+ * Pohon error lengkap: semua blok yang mungkin muncul di quadtree dengan
+ * minBlockSize tertentu, masing-masing dengan error dan warna rata-ratanya.
+ * Dibangun sekali, lalu quadtree untuk threshold apa pun didapat dengan
+ * memangkas pohon ini tanpa membaca piksel lagi. Node dengan error > threshold
+ * dibagi, persis seperti buildQuadTree.
+ *
+ * Tata letak array sama dengan MomentPyramid: keempat anak berurutan mulai
+ * dari firstChild, node yang tidak bisa dibagi bernilai -1
+ */
+public class ErrorTree {
+    public static final int ROOT = 0;
+    
+    private final int width;
+    private final int height;
+    private final int minBlockSize;
+    
+    private final int[] firstChild;
+    private final int[] color;
+    private final double[] error;
+    
+    // Error semua node yang bisa dibagi, terurut naik, sebagai kandidat threshold
+    private final double[] candidates;
+    
+    private int size;
+    
+    // Error dari EntropyEngine selama konstruksi, null untuk metode lain
+    private double[] precomputedError;
+    
+    public ErrorTree(PixelBuffer pixels, IntegralImage integralImage, ErrorMeasurement errorMeasurement, int minBlockSize) {
+        this.width = pixels.getWidth();
+        this.height = pixels.getHeight();
+        this.minBlockSize = minBlockSize;
+        
+        int nodes = MomentPyramid.countNodes(width, height, minBlockSize);
+        firstChild = new int[nodes];
+        color = new int[nodes];
+        error = new double[nodes];
+        
+        // Entropy seluruh pohon dihitung sekaligus dengan histogram yang digabung bottom-up
+        precomputedError = errorMeasurement instanceof ErrorMeasurementImpl impl
+                && impl.getMethod() == ErrorMeasurementImpl.ENTROPY
+            ? EntropyEngine.potentialTreeEntropy(pixels, minBlockSize)
+            : null;
+        
+        size = 1;
+        build(pixels, integralImage, errorMeasurement, ROOT, 0, 0, width, height);
+        precomputedError = null;
+        
+        int splittable = 0;
+        double[] values = new double[size];
+        for (int i = 0; i < size; i++) {
+            if (firstChild[i] >= 0) {
+                values[splittable++] = error[i];
+            }
+        }
+        values = Arrays.copyOf(values, splittable);
+        Arrays.sort(values);
+        candidates = values;
+    }
+    
+    private void build(PixelBuffer pixels, IntegralImage integralImage, ErrorMeasurement errorMeasurement,
+                       int index, int x, int y, int width, int height) {
+        int pixelCount = integralImage.getPixelCount(x, y, width, height);
+        if (pixelCount > 0) {
+            color[index] = 0xFF000000
+                | QuadTreeNode.averageChannel(integralImage.getSumRed(x, y, width, height), pixelCount) << 16
+                | QuadTreeNode.averageChannel(integralImage.getSumGreen(x, y, width, height), pixelCount) << 8
+                | QuadTreeNode.averageChannel(integralImage.getSumBlue(x, y, width, height), pixelCount);
+        }
+        
+        if (!QuadTreeNode.isSplittable(width, height, minBlockSize)) {
+            firstChild[index] = -1;
+            return;
+        }
+        
+        error[index] = precomputedError != null
+            ? precomputedError[index]
+            : errorMeasurement.calculateError(pixels, x, y, width, height);
+        
+        int child = size;
+        size += 4;
+        firstChild[index] = child;
+        
+        int westWidth = (width + 1) / 2;
+        int northHeight = (height + 1) / 2;
+        build(pixels, integralImage, errorMeasurement, child, x, y, westWidth, northHeight);
+        build(pixels, integralImage, errorMeasurement, child + 1, x + westWidth, y, width - westWidth, northHeight);
+        build(pixels, integralImage, errorMeasurement, child + 2, x, y + northHeight, westWidth, height - northHeight);
+        build(pixels, integralImage, errorMeasurement, child + 3, x + westWidth, y + northHeight,
+              width - westWidth, height - northHeight);
+    }
+    
+    /**
+     * Menghitung ukuran quadtree untuk threshold tertentu dengan menelusuri
+     * hanya node yang akan ada di pohon hasil: {jumlah node, jumlah leaf, jumlah bit split}
+     */
+    public long[] measure(double threshold) {
+        long nodes = 0, leaves = 0, splitFlags = 0;
+        int[] stack = new int[64];
+        int top = 0;
+        stack[top++] = ROOT;
+        
+        while (top > 0) {
+            int index = stack[--top];
+            nodes++;
+            
+            int child = firstChild[index];
+            if (child < 0) {
+                leaves++;
+                continue;
+            }
+            
+            // Node yang bisa dibagi selalu punya bit split di file .qtc
+            splitFlags++;
+            if (error[index] > threshold) {
+                if (top + 4 > stack.length) {
+                    stack = Arrays.copyOf(stack, stack.length * 2);
+                }
+                stack[top++] = child;
+                stack[top++] = child + 1;
+                stack[top++] = child + 2;
+                stack[top++] = child + 3;
+            } else {
+                leaves++;
+            }
+        }
+        return new long[] {nodes, leaves, splitFlags};
+    }
+    
+    /**
+     * Perkiraan ukuran file .qtc (tanpa deflate) untuk threshold tertentu
+     */
+    public long estimateByteSize(double threshold) {
+        long[] counts = measure(threshold);
+        return QtcWriter.HEADER_BYTES + (counts[2] + 7) / 8 + 3 * counts[1];
+    }
+    
+    /**
+     * Threshold terkecil (kualitas terbaik) yang menghasilkan paling banyak maxLeaves leaf
+     */
+    public double findThresholdForLeafCount(long maxLeaves) {
+        return search(threshold -> measure(threshold)[1] <= maxLeaves);
+    }
+    
+    /**
+     * Threshold terkecil (kualitas terbaik) dengan perkiraan ukuran file paling besar maxBytes
+     */
+    public double findThresholdForByteSize(long maxBytes) {
+        return search(threshold -> estimateByteSize(threshold) <= maxBytes);
+    }
+    
+    /**
+     * Binary search di atas kandidat threshold. Ukuran pohon tidak pernah naik saat
+     * threshold naik, jadi cukup mencari kandidat terkecil yang memenuhi syarat.
+     * Jika tidak ada yang memenuhi, dipakai threshold terbesar (pohon paling kecil)
+     */
+    private double search(DoublePredicate fits) {
+        if (candidates.length == 0 || fits.test(0)) {
+            return 0;
+        }
+        
+        int low = 0;
+        int high = candidates.length - 1;
+        if (!fits.test(candidates[high])) {
+            return candidates[high];
+        }
+        
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (fits.test(candidates[mid])) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return candidates[low];
+    }
+    
+    /**
+     * Membentuk pohon QuadTreeNode untuk threshold tertentu
+     */
+    public QuadTreeNode toTree(double threshold) {
+        QuadTreeNode root = new QuadTreeNode(0, 0, width, height);
+        copyTo(root, ROOT, threshold);
+        return root;
+    }
+    
+    private void copyTo(QuadTreeNode node, int index, double threshold) {
+        node.setAverageRGB(color[index]);
+        int child = firstChild[index];
+        if (child < 0 || error[index] <= threshold) {
+            return;
+        }
+        
+        node.split();
+        copyTo(node.getNorthWest(), child, threshold);
+        copyTo(node.getNorthEast(), child + 1, threshold);
+        copyTo(node.getSouthWest(), child + 2, threshold);
+        copyTo(node.getSouthEast(), child + 3, threshold);
+    }
+    
+    /**
+     * Membentuk CompactQuadTree untuk threshold tertentu
+     */
+    public CompactQuadTree toCompactTree(double threshold) {
+        CompactQuadTree tree = new CompactQuadTree(width, height);
+        copyTo(tree, CompactQuadTree.ROOT, ROOT, threshold);
+        tree.trim();
+        return tree;
+    }
+    
+    private void copyTo(CompactQuadTree tree, int target, int index, double threshold) {
+        tree.setColor(target, color[index]);
+        int child = firstChild[index];
+        if (child < 0 || error[index] <= threshold) {
+            return;
+        }
+        
+        int targetChild = tree.split(target);
+        for (int i = 0; i < 4; i++) {
+            copyTo(tree, targetChild + i, child + i, threshold);
+        }
+    }
+    
+    public int getNodeCount() {
+        return size;
+    }
+    
+    public int getMinBlockSize() {
+        return minBlockSize;
+    }
+}
@@ -1,31 +1,41 @@
-import java.awt.Color;
 import java.awt.image.BufferedImage;
+import java.util.Arrays;
 
 /**
  * Kelas untuk memproses dan memanipulasi gambar
  */
 public class ImageProcessor {
     /**
-     * Menormalisasi warna dalam blok dengan menggunakan rata-rata RGB
+     * Menormalisasi warna dalam blok dengan menggunakan rata-rata RGB.
+     * Leaf ditulis langsung ke DataBuffer gambar (lihat BlockRasterizer)
      */
     public static void normalizeBlock(BufferedImage image, QuadTreeNode node) {
-        if (node.isLeaf()) {
-            // Hanya normalisasi leaf nodes
-            Color avgColor = node.getAverageColor();
-            int rgbValue = avgColor.getRGB();
-            
-            // Set semua piksel dalam blok ke warna rata-rata
-            for (int i = node.getX(); i < node.getX() + node.getWidth() && i < image.getWidth(); i++) {
-                for (int j = node.getY(); j < node.getY() + node.getHeight() && j < image.getHeight(); j++) {
-                    image.setRGB(i, j, rgbValue);
-                }
-            }
-        } else {
-            // Rekursi untuk semua child nodes
-            normalizeBlock(image, node.getNorthWest());
-            normalizeBlock(image, node.getNorthEast());
-            normalizeBlock(image, node.getSouthWest());
-            normalizeBlock(image, node.getSouthEast());
+        new BlockRasterizer(image).render(node);
+    }
+    
+    /**
+     * Menormalisasi warna gambar dari quadtree ringkas
+     */
+    public static void normalizeBlock(BufferedImage image, CompactQuadTree tree) {
+        new BlockRasterizer(image).render(tree);
+    }
+    
+    /**
+     * Mengisi satu blok dengan satu warna, satu baris sekaligus lewat setRGB.
+     * Dipakai BlockRasterizer untuk tipe gambar yang tidak bisa ditulis langsung
+     */
+    public static void fillBlock(BufferedImage image, int x, int y, int width, int height, int rgb) {
+        int right = Math.min(x + width, image.getWidth());
+        int bottom = Math.min(y + height, image.getHeight());
+        int rowWidth = right - x;
+        if (rowWidth <= 0) {
+            return;
+        }
+        
+        int[] row = new int[rowWidth];
+        Arrays.fill(row, rgb);
+        for (int j = y; j < bottom; j++) {
+            image.setRGB(x, j, rowWidth, 1, row, 0, rowWidth);
         }
     }
     
@@ -68,4 +78,18 @@ public class ImageProcessor {
                    countNodes(node.getSouthWest()) + 
                    countNodes(node.getSouthEast());
     }
+    
+    /**
+     * Menghitung kedalaman quadtree ringkas
+     */
+    public static int calculateTreeDepth(CompactQuadTree tree) {
+        return tree.getDepth();
+    }
+    
+    /**
+     * Menghitung jumlah node dalam quadtree ringkas
+     */
+    public static int countNodes(CompactQuadTree tree) {
+        return tree.getNodeCount();
+    }
 }
\ No newline at end of file
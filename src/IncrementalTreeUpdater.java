@@ -0,0 +1,176 @@
+/**
+ * Memperbarui quadtree yang sudah ada setelah sebagian piksel berubah, tanpa
+ * membangun ulang seluruh pohon.
+ *
+ * Jumlah dan momen setiap blok disimpan di MomentPyramid. Setelah perubahan,
+ * piramida hanya dipindai ulang di blok yang menyentuh DirtyRegion, lalu pohon
+ * hanya dievaluasi ulang di node yang bloknya menyentuh region itu. Node lain
+ * dipakai apa adanya, karena keputusan split sebuah blok hanya bergantung pada
+ * piksel blok itu. Leaf yang berubah langsung digambar ulang lewat BlockRasterizer.
+ * Hasilnya identik dengan membangun pohon dari awal dengan parameter yang sama
+ */
+public class IncrementalTreeUpdater {
+    private final MomentPyramid pyramid;
+    private final int errorMethod;
+    private final ErrorMeasurement errorMeasurement;
+    private double threshold;
+    
+    // Dipakai selama satu pemanggilan build atau update
+    private PixelBuffer pixels;
+    private BlockRasterizer rasterizer;
+    
+    // Penghitung pemanggilan terakhir
+    private long evaluatedNodes;
+    private long reusedSubtrees;
+    private long paintedLeaves;
+    private long scannedPixels;
+    
+    public IncrementalTreeUpdater(PixelBuffer pixels, int errorMethod, double threshold, int minBlockSize) {
+        this.pyramid = new MomentPyramid(pixels, minBlockSize);
+        this.errorMethod = errorMethod;
+        this.errorMeasurement = new ErrorMeasurementImpl(errorMethod);
+        this.threshold = threshold;
+    }
+    
+    /**
+     * Threshold untuk keputusan berikutnya, misalnya setelah compressToTarget memilih threshold baru
+     */
+    public void setThreshold(double threshold) {
+        this.threshold = threshold;
+    }
+    
+    /**
+     * Membangun pohon lengkap dari piramida dan menggambar semua leaf-nya. Rasterizer
+     * boleh null jika hanya pohonnya yang dibutuhkan
+     */
+    public QuadTreeNode build(PixelBuffer pixels, BlockRasterizer rasterizer) {
+        begin(pixels, rasterizer);
+        QuadTreeNode root = new QuadTreeNode(0, 0, pixels.getWidth(), pixels.getHeight());
+        build(root, MomentPyramid.ROOT);
+        return root;
+    }
+    
+    /**
+     * Menerapkan perubahan piksel di region kotor ke piramida dan pohon. Pohon harus
+     * dibangun dari piksel sebelumnya dengan parameter yang sama, dan gambar di
+     * rasterizer harus berisi render pohon itu
+     */
+    public void update(QuadTreeNode root, PixelBuffer pixels, DirtyRegion mask, BlockRasterizer rasterizer) {
+        begin(pixels, rasterizer);
+        if (mask.isEmpty()) {
+            reusedSubtrees = 1;
+            return;
+        }
+        pyramid.update(pixels, mask);
+        update(root, MomentPyramid.ROOT, mask);
+    }
+    
+    private void begin(PixelBuffer pixels, BlockRasterizer rasterizer) {
+        this.pixels = pixels;
+        this.rasterizer = rasterizer;
+        evaluatedNodes = 0;
+        reusedSubtrees = 0;
+        paintedLeaves = 0;
+        scannedPixels = 0;
+    }
+    
+    private void build(QuadTreeNode node, int index) {
+        setAverage(node, index);
+        if (shouldSplit(node, index)) {
+            node.split();
+            buildChildren(node, pyramid.getFirstChild(index));
+        } else {
+            paint(node);
+        }
+    }
+    
+    private void buildChildren(QuadTreeNode node, int child) {
+        build(node.getNorthWest(), child);
+        build(node.getNorthEast(), child + 1);
+        build(node.getSouthWest(), child + 2);
+        build(node.getSouthEast(), child + 3);
+    }
+    
+    /**
+     * Mengevaluasi ulang subtree yang bloknya menyentuh region kotor, subtree bersih
+     * tidak disentuh sama sekali
+     */
+    private void update(QuadTreeNode node, int index, DirtyRegion mask) {
+        if (!mask.intersects(node.getX(), node.getY(), node.getWidth(), node.getHeight())) {
+            reusedSubtrees++;
+            return;
+        }
+        
+        setAverage(node, index);
+        if (!shouldSplit(node, index)) {
+            node.merge();
+            paint(node);
+            return;
+        }
+        
+        int child = pyramid.getFirstChild(index);
+        if (node.isLeaf()) {
+            // Blok yang sebelumnya satu warna sekarang dibagi, semua anaknya baru
+            node.split();
+            buildChildren(node, child);
+        } else {
+            update(node.getNorthWest(), child, mask);
+            update(node.getNorthEast(), child + 1, mask);
+            update(node.getSouthWest(), child + 2, mask);
+            update(node.getSouthEast(), child + 3, mask);
+        }
+    }
+    
+    private void setAverage(QuadTreeNode node, int index) {
+        node.calculateAverage(
+            pyramid.getSumRed(index), pyramid.getSumGreen(index), pyramid.getSumBlue(index), pyramid.getPixelCount(index)
+        );
+    }
+    
+    /**
+     * Keputusan split yang sama dengan QuadTreeCompression.buildFromPyramid
+     */
+    private boolean shouldSplit(QuadTreeNode node, int index) {
+        if (pyramid.getFirstChild(index) < 0) {
+            return false;
+        }
+        evaluatedNodes++;
+        return switch (errorMethod) {
+            case ErrorMeasurementImpl.VARIANCE -> pyramid.getVariance(index) > threshold;
+            case ErrorMeasurementImpl.MAX_PIXEL_DIFFERENCE -> pyramid.getMaxPixelDifference(index) > threshold;
+            default -> {
+                scannedPixels += (long) node.getWidth() * node.getHeight();
+                yield errorMeasurement.exceeds(
+                    pixels, node.getX(), node.getY(), node.getWidth(), node.getHeight(), threshold
+                );
+            }
+        };
+    }
+    
+    private void paint(QuadTreeNode node) {
+        if (rasterizer == null) {
+            return;
+        }
+        rasterizer.fill(node.getX(), node.getY(), node.getWidth(), node.getHeight(), node.getAverageRGB());
+        paintedLeaves++;
+    }
+    
+    public long getEvaluatedNodes() {
+        return evaluatedNodes;
+    }
+    
+    public long getReusedSubtrees() {
+        return reusedSubtrees;
+    }
+    
+    public long getPaintedLeaves() {
+        return paintedLeaves;
+    }
+    
+    /**
+     * Piksel yang dipindai untuk MAD dan ENTROPY (batas atas, pemindaian bisa berhenti lebih awal)
+     */
+    public long getScannedPixels() {
+        return scannedPixels;
+    }
+}
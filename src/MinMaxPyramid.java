@@ -0,0 +1,116 @@
+/**
+ * Piramida min/max per kanal untuk semua blok yang mungkin muncul di quadtree
+ * dengan minBlockSize tertentu, termasuk kuadran berukuran ganjil hasil
+ * QuadTreeNode.split. Blok terkecil dipindai sekali, lalu min/max digabung ke
+ * atas, sehingga Max Pixel Difference setiap node bisa dijawab O(1) lewat
+ * indeksnya tanpa memindai ulang piksel di setiap level.
+ *
+ * Tata letak indeks sama dengan MomentPyramid: keempat anak berurutan
+ * (NW, NE, SW, SE) mulai dari firstChild, node tanpa anak bernilai -1.
+ * Hanya 6 byte statistik per node, lebih ringan dari MomentPyramid untuk
+ * pembangunan top-down yang hanya butuh min/max
+ */
+public class MinMaxPyramid {
+    public static final int ROOT = 0;
+    
+    private final int[] firstChild;
+    private final byte[] minRed, minGreen, minBlue;
+    private final byte[] maxRed, maxGreen, maxBlue;
+    
+    private final int minBlockSize;
+    private int size;
+    
+    public MinMaxPyramid(PixelBuffer pixels, int minBlockSize) {
+        this.minBlockSize = minBlockSize;
+        int nodes = MomentPyramid.countNodes(pixels.getWidth(), pixels.getHeight(), minBlockSize);
+        
+        firstChild = new int[nodes];
+        minRed = new byte[nodes];
+        minGreen = new byte[nodes];
+        minBlue = new byte[nodes];
+        maxRed = new byte[nodes];
+        maxGreen = new byte[nodes];
+        maxBlue = new byte[nodes];
+        
+        size = 1;
+        build(pixels, ROOT, 0, 0, pixels.getWidth(), pixels.getHeight());
+    }
+    
+    private void build(PixelBuffer pixels, int index, int x, int y, int width, int height) {
+        if (!QuadTreeNode.isSplittable(width, height, minBlockSize)) {
+            firstChild[index] = -1;
+            scanBlock(pixels, index, x, y, width, height);
+            return;
+        }
+        
+        int child = size;
+        size += 4;
+        firstChild[index] = child;
+        
+        int westWidth = (width + 1) / 2;
+        int northHeight = (height + 1) / 2;
+        build(pixels, child, x, y, westWidth, northHeight);
+        build(pixels, child + 1, x + westWidth, y, width - westWidth, northHeight);
+        build(pixels, child + 2, x, y + northHeight, westWidth, height - northHeight);
+        build(pixels, child + 3, x + westWidth, y + northHeight, width - westWidth, height - northHeight);
+        
+        merge(index, child);
+    }
+    
+    private void scanBlock(PixelBuffer pixels, int index, int x, int y, int width, int height) {
+        int[] range = {255, 255, 255, 0, 0, 0};
+        for (int j = y; j < y + height; j++) {
+            PixelKernels.INSTANCE.minMax(pixels.getRed(), pixels.getGreen(), pixels.getBlue(),
+                j * pixels.getWidth() + x, width, range);
+        }
+        
+        minRed[index] = (byte) range[0];
+        minGreen[index] = (byte) range[1];
+        minBlue[index] = (byte) range[2];
+        maxRed[index] = (byte) range[3];
+        maxGreen[index] = (byte) range[4];
+        maxBlue[index] = (byte) range[5];
+    }
+    
+    private void merge(int index, int child) {
+        int lowRed = 255, lowGreen = 255, lowBlue = 255;
+        int highRed = 0, highGreen = 0, highBlue = 0;
+        
+        for (int c = child; c < child + 4; c++) {
+            lowRed = Math.min(lowRed, minRed[c] & 0xFF);
+            lowGreen = Math.min(lowGreen, minGreen[c] & 0xFF);
+            lowBlue = Math.min(lowBlue, minBlue[c] & 0xFF);
+            highRed = Math.max(highRed, maxRed[c] & 0xFF);
+            highGreen = Math.max(highGreen, maxGreen[c] & 0xFF);
+            highBlue = Math.max(highBlue, maxBlue[c] & 0xFF);
+        }
+        
+        minRed[index] = (byte) lowRed;
+        minGreen[index] = (byte) lowGreen;
+        minBlue[index] = (byte) lowBlue;
+        maxRed[index] = (byte) highRed;
+        maxGreen[index] = (byte) highGreen;
+        maxBlue[index] = (byte) highBlue;
+    }
+    
+    public int getNodeCount() {
+        return size;
+    }
+    
+    /**
+     * Indeks anak pertama (NW), atau -1 jika blok tidak bisa dibagi lagi
+     */
+    public int getFirstChild(int index) {
+        return firstChild[index];
+    }
+    
+    /**
+     * Max Pixel Difference blok, sama dengan ErrorMeasurementImpl untuk metode MAX_PIXEL_DIFFERENCE
+     */
+    public double getMaxPixelDifference(int index) {
+        double diffRed = (maxRed[index] & 0xFF) - (minRed[index] & 0xFF);
+        double diffGreen = (maxGreen[index] & 0xFF) - (minGreen[index] & 0xFF);
+        double diffBlue = (maxBlue[index] & 0xFF) - (minBlue[index] & 0xFF);
+        return (diffRed + diffGreen + diffBlue) / 3.0;
+    }
+}
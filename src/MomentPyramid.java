@@ -0,0 +1,247 @@
+/**
+ * Piramida statistik blok (jumlah piksel, jumlah, jumlah kuadrat, min/max per kanal)
+ * untuk semua blok yang mungkin muncul di quadtree dengan minBlockSize tertentu.
+ * Statistik blok terkecil dihitung dengan satu kali pembacaan piksel, lalu
+ * digabung ke atas sehingga keputusan split tidak perlu membaca piksel lagi.
+ *
+ * Node disimpan dalam array paralel. Keempat anak sebuah node selalu berurutan
+ * (NW, NE, SW, SE) mulai dari firstChild, node tanpa anak bernilai -1
+ */
+public class MomentPyramid {
+    public static final int ROOT = 0;
+    
+    private final int[] firstChild;
+    private final int[] pixelCount;
+    private final long[] sumRed;
+    private final long[] sumGreen;
+    private final long[] sumBlue;
+    private final long[] sumSquares;
+    private final byte[] minRed, minGreen, minBlue;
+    private final byte[] maxRed, maxGreen, maxBlue;
+    
+    private final int minBlockSize;
+    private final int width;
+    private final int height;
+    private int size;
+    
+    public MomentPyramid(PixelBuffer pixels, int minBlockSize) {
+        this.minBlockSize = minBlockSize;
+        this.width = pixels.getWidth();
+        this.height = pixels.getHeight();
+        int nodes = countNodes(pixels.getWidth(), pixels.getHeight(), minBlockSize);
+        
+        firstChild = new int[nodes];
+        pixelCount = new int[nodes];
+        sumRed = new long[nodes];
+        sumGreen = new long[nodes];
+        sumBlue = new long[nodes];
+        sumSquares = new long[nodes];
+        minRed = new byte[nodes];
+        minGreen = new byte[nodes];
+        minBlue = new byte[nodes];
+        maxRed = new byte[nodes];
+        maxGreen = new byte[nodes];
+        maxBlue = new byte[nodes];
+        
+        size = 1;
+        build(pixels, ROOT, 0, 0, pixels.getWidth(), pixels.getHeight());
+    }
+    
+    /**
+     * Menghitung jumlah semua blok yang mungkin muncul di quadtree tanpa membaca piksel
+     */
+    public static int countNodes(int width, int height, int minBlockSize) {
+        if (!QuadTreeNode.isSplittable(width, height, minBlockSize)) {
+            return 1;
+        }
+        int westWidth = (width + 1) / 2;
+        int northHeight = (height + 1) / 2;
+        return 1 + countNodes(westWidth, northHeight, minBlockSize)
+                 + countNodes(width - westWidth, northHeight, minBlockSize)
+                 + countNodes(westWidth, height - northHeight, minBlockSize)
+                 + countNodes(width - westWidth, height - northHeight, minBlockSize);
+    }
+    
+    /**
+     * Mengisi statistik node secara bottom-up, dengan pembagian blok yang sama
+     * seperti QuadTreeNode.split
+     */
+    private void build(PixelBuffer pixels, int index, int x, int y, int width, int height) {
+        if (!QuadTreeNode.isSplittable(width, height, minBlockSize)) {
+            firstChild[index] = -1;
+            scanBlock(pixels, index, x, y, width, height);
+            return;
+        }
+        
+        int child = size;
+        size += 4;
+        firstChild[index] = child;
+        
+        int westWidth = (width + 1) / 2;
+        int northHeight = (height + 1) / 2;
+        build(pixels, child, x, y, westWidth, northHeight);
+        build(pixels, child + 1, x + westWidth, y, width - westWidth, northHeight);
+        build(pixels, child + 2, x, y + northHeight, westWidth, height - northHeight);
+        build(pixels, child + 3, x + westWidth, y + northHeight, width - westWidth, height - northHeight);
+        
+        merge(index, child);
+    }
+    
+    /**
+     * Memperbarui statistik untuk frame baru berukuran sama. Hanya blok yang
+     * bersinggungan dengan bagian yang berubah di mask yang dihitung ulang, blok terkecil
+     * dipindai lagi dan leluhurnya digabung ulang, sehingga biayanya sebanding
+     * dengan luas yang berubah
+     */
+    public void update(PixelBuffer pixels, DirtyRegion mask) {
+        if (pixels.getWidth() != width || pixels.getHeight() != height) {
+            throw new IllegalArgumentException("Ukuran frame berbeda dari piramida");
+        }
+        update(pixels, mask, ROOT, 0, 0, width, height);
+    }
+    
+    private void update(PixelBuffer pixels, DirtyRegion mask, int index, int x, int y, int width, int height) {
+        if (!mask.intersects(x, y, width, height)) {
+            return;
+        }
+        
+        int child = firstChild[index];
+        if (child < 0) {
+            scanBlock(pixels, index, x, y, width, height);
+            return;
+        }
+        
+        int westWidth = (width + 1) / 2;
+        int northHeight = (height + 1) / 2;
+        update(pixels, mask, child, x, y, westWidth, northHeight);
+        update(pixels, mask, child + 1, x + westWidth, y, width - westWidth, northHeight);
+        update(pixels, mask, child + 2, x, y + northHeight, westWidth, height - northHeight);
+        update(pixels, mask, child + 3, x + westWidth, y + northHeight, width - westWidth, height - northHeight);
+        
+        merge(index, child);
+    }
+    
+    private void scanBlock(PixelBuffer pixels, int index, int x, int y, int width, int height) {
+        byte[] red = pixels.getRed();
+        byte[] green = pixels.getGreen();
+        byte[] blue = pixels.getBlue();
+        
+        long sr = 0, sg = 0, sb = 0, sq = 0;
+        int lowRed = 255, lowGreen = 255, lowBlue = 255;
+        int highRed = 0, highGreen = 0, highBlue = 0;
+        
+        for (int j = y; j < y + height; j++) {
+            int offset = j * pixels.getWidth();
+            for (int i = offset + x; i < offset + x + width; i++) {
+                int r = red[i] & 0xFF;
+                int g = green[i] & 0xFF;
+                int b = blue[i] & 0xFF;
+                
+                sr += r;
+                sg += g;
+                sb += b;
+                sq += r * r + g * g + b * b;
+                
+                lowRed = Math.min(lowRed, r);
+                lowGreen = Math.min(lowGreen, g);
+                lowBlue = Math.min(lowBlue, b);
+                highRed = Math.max(highRed, r);
+                highGreen = Math.max(highGreen, g);
+                highBlue = Math.max(highBlue, b);
+            }
+        }
+        
+        pixelCount[index] = width * height;
+        sumRed[index] = sr;
+        sumGreen[index] = sg;
+        sumBlue[index] = sb;
+        sumSquares[index] = sq;
+        minRed[index] = (byte) lowRed;
+        minGreen[index] = (byte) lowGreen;
+        minBlue[index] = (byte) lowBlue;
+        maxRed[index] = (byte) highRed;
+        maxGreen[index] = (byte) highGreen;
+        maxBlue[index] = (byte) highBlue;
+    }
+    
+    private void merge(int index, int child) {
+        int count = 0;
+        long sr = 0, sg = 0, sb = 0, sq = 0;
+        int lowRed = 255, lowGreen = 255, lowBlue = 255;
+        int highRed = 0, highGreen = 0, highBlue = 0;
+        
+        for (int c = child; c < child + 4; c++) {
+            count += pixelCount[c];
+            sr += sumRed[c];
+            sg += sumGreen[c];
+            sb += sumBlue[c];
+            sq += sumSquares[c];
+            
+            lowRed = Math.min(lowRed, minRed[c] & 0xFF);
+            lowGreen = Math.min(lowGreen, minGreen[c] & 0xFF);
+            lowBlue = Math.min(lowBlue, minBlue[c] & 0xFF);
+            highRed = Math.max(highRed, maxRed[c] & 0xFF);
+            highGreen = Math.max(highGreen, maxGreen[c] & 0xFF);
+            highBlue = Math.max(highBlue, maxBlue[c] & 0xFF);
+        }
+        
+        // Ditimpa, bukan ditambah, karena update menggabung ulang node yang sudah terisi
+        pixelCount[index] = count;
+        sumRed[index] = sr;
+        sumGreen[index] = sg;
+        sumBlue[index] = sb;
+        sumSquares[index] = sq;
+        minRed[index] = (byte) lowRed;
+        minGreen[index] = (byte) lowGreen;
+        minBlue[index] = (byte) lowBlue;
+        maxRed[index] = (byte) highRed;
+        maxGreen[index] = (byte) highGreen;
+        maxBlue[index] = (byte) highBlue;
+    }
+    
+    public int getNodeCount() {
+        return size;
+    }
+    
+    /**
+     * Indeks anak pertama (NW), atau -1 jika blok tidak bisa dibagi lagi
+     */
+    public int getFirstChild(int index) {
+        return firstChild[index];
+    }
+    
+    public int getPixelCount(int index) {
+        return pixelCount[index];
+    }
+    
+    public long getSumRed(int index) {
+        return sumRed[index];
+    }
+    
+    public long getSumGreen(int index) {
+        return sumGreen[index];
+    }
+    
+    public long getSumBlue(int index) {
+        return sumBlue[index];
+    }
+    
+    /**
+     * Variansi blok, sama dengan ErrorMeasurementImpl untuk metode VARIANCE
+     */
+    public double getVariance(int index) {
+        return ErrorMeasurementImpl.varianceFromSums(
+            pixelCount[index], sumRed[index], sumGreen[index], sumBlue[index], sumSquares[index]
+        );
+    }
+    
+    /**
+     * Max Pixel Difference blok, sama dengan ErrorMeasurementImpl untuk metode MAX_PIXEL_DIFFERENCE
+     */
+    public double getMaxPixelDifference(int index) {
+        double diffRed = (maxRed[index] & 0xFF) - (minRed[index] & 0xFF);
+        double diffGreen = (maxGreen[index] & 0xFF) - (minGreen[index] & 0xFF);
+        double diffBlue = (maxBlue[index] & 0xFF) - (minBlue[index] & 0xFF);
+        return (diffRed + diffGreen + diffBlue) / 3.0;
+    }
+}
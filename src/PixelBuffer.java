@@ -0,0 +1,178 @@
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+
+/**
+ * Salinan piksel gambar dalam bentuk planar (satu array byte per kanal R, G, B)
+ * dengan urutan row-major, indeks piksel (x, y) adalah y * width + x.
+ * Diekstrak sekali dari DataBuffer sehingga loop perhitungan tidak perlu
+ * memanggil getRGB atau membuat objek Color untuk setiap piksel
+ */
+public final class PixelBuffer {
+    private final int width;
+    private final int height;
+    private final byte[] red;
+    private final byte[] green;
+    private final byte[] blue;
+    
+    public PixelBuffer(int width, int height, byte[] red, byte[] green, byte[] blue) {
+        this.width = width;
+        this.height = height;
+        this.red = red;
+        this.green = green;
+        this.blue = blue;
+    }
+    
+    /**
+     * Mengekstrak piksel dari BufferedImage. Tipe raster umum (INT_RGB, INT_ARGB,
+     * 3BYTE_BGR, 4BYTE_ABGR) dibaca langsung dari DataBuffer, tipe lain lewat getRGB per baris
+     */
+    public static PixelBuffer fromImage(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int pixelCount = width * height;
+        byte[] red = new byte[pixelCount];
+        byte[] green = new byte[pixelCount];
+        byte[] blue = new byte[pixelCount];
+        
+        boolean extracted = switch (image.getType()) {
+            case BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB ->
+                extractPackedInt(image.getRaster(), red, green, blue);
+            case BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_4BYTE_ABGR ->
+                extractInterleavedByte(image.getRaster(), red, green, blue);
+            default -> false;
+        };
+        
+        if (!extracted) {
+            // Jalur umum, tetap membaca satu baris sekaligus
+            int[] row = new int[width];
+            for (int y = 0; y < height; y++) {
+                image.getRGB(0, y, width, 1, row, 0, width);
+                int offset = y * width;
+                for (int x = 0; x < width; x++) {
+                    int rgb = row[x];
+                    red[offset + x] = (byte) (rgb >> 16);
+                    green[offset + x] = (byte) (rgb >> 8);
+                    blue[offset + x] = (byte) rgb;
+                }
+            }
+        }
+        
+        return new PixelBuffer(width, height, red, green, blue);
+    }
+    
+    /**
+     * Menimpa persegi panjang mulai (x, y) dengan piksel dari gambar region,
+     * misalnya setelah sebagian gambar diedit. Region harus muat di dalam buffer
+     */
+    public void setRegion(int x, int y, BufferedImage region) {
+        int regionWidth = region.getWidth();
+        int regionHeight = region.getHeight();
+        if (x < 0 || y < 0 || x + regionWidth > width || y + regionHeight > height) {
+            throw new IllegalArgumentException("Region di luar batas gambar");
+        }
+        
+        int[] row = new int[regionWidth];
+        for (int r = 0; r < regionHeight; r++) {
+            region.getRGB(0, r, regionWidth, 1, row, 0, regionWidth);
+            int offset = (y + r) * width + x;
+            for (int c = 0; c < regionWidth; c++) {
+                int rgb = row[c];
+                red[offset + c] = (byte) (rgb >> 16);
+                green[offset + c] = (byte) (rgb >> 8);
+                blue[offset + c] = (byte) rgb;
+            }
+        }
+    }
+    
+    private static boolean extractPackedInt(Raster raster, byte[] red, byte[] green, byte[] blue) {
+        SampleModel sampleModel = raster.getSampleModel();
+        DataBuffer dataBuffer = raster.getDataBuffer();
+        if (!isUntranslated(raster)
+                || !(dataBuffer instanceof DataBufferInt)
+                || !(sampleModel instanceof SinglePixelPackedSampleModel packed)
+                || packed.getScanlineStride() != raster.getWidth()) {
+            return false;
+        }
+        
+        int[] data = ((DataBufferInt) dataBuffer).getData();
+        int offset = dataBuffer.getOffset();
+        for (int i = 0; i < red.length; i++) {
+            int rgb = data[offset + i];
+            red[i] = (byte) (rgb >> 16);
+            green[i] = (byte) (rgb >> 8);
+            blue[i] = (byte) rgb;
+        }
+        return true;
+    }
+    
+    private static boolean extractInterleavedByte(Raster raster, byte[] red, byte[] green, byte[] blue) {
+        SampleModel sampleModel = raster.getSampleModel();
+        DataBuffer dataBuffer = raster.getDataBuffer();
+        if (!isUntranslated(raster)
+                || !(dataBuffer instanceof DataBufferByte)
+                || !(sampleModel instanceof ComponentSampleModel component)) {
+            return false;
+        }
+        
+        int pixelStride = component.getPixelStride();
+        if (component.getScanlineStride() != raster.getWidth() * pixelStride) {
+            return false;
+        }
+        
+        // Band 0, 1, 2 adalah R, G, B untuk kedua tipe ini
+        int[] bandOffsets = component.getBandOffsets();
+        byte[] data = ((DataBufferByte) dataBuffer).getData();
+        int redOffset = dataBuffer.getOffset() + bandOffsets[0];
+        int greenOffset = dataBuffer.getOffset() + bandOffsets[1];
+        int blueOffset = dataBuffer.getOffset() + bandOffsets[2];
+        for (int i = 0, p = 0; i < red.length; i++, p += pixelStride) {
+            red[i] = data[redOffset + p];
+            green[i] = data[greenOffset + p];
+            blue[i] = data[blueOffset + p];
+        }
+        return true;
+    }
+    
+    private static boolean isUntranslated(Raster raster) {
+        return raster.getSampleModelTranslateX() == 0
+            && raster.getSampleModelTranslateY() == 0
+            && raster.getDataBuffer().getNumBanks() == 1;
+    }
+    
+    public int getWidth() {
+        return width;
+    }
+    
+    public int getHeight() {
+        return height;
+    }
+    
+    /**
+     * Array kanal merah, nilai dibaca sebagai (red[i] & 0xFF)
+     */
+    public byte[] getRed() {
+        return red;
+    }
+    
+    public byte[] getGreen() {
+        return green;
+    }
+    
+    public byte[] getBlue() {
+        return blue;
+    }
+    
+    /**
+     * Mengambil warna satu piksel dalam format RGB packed (alpha penuh)
+     */
+    public int getRGB(int x, int y) {
+        int i = y * width + x;
+        return 0xFF000000 | (red[i] & 0xFF) << 16 | (green[i] & 0xFF) << 8 | (blue[i] & 0xFF);
+    }
+}
@@ -0,0 +1,181 @@
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import javax.imageio.ImageIO;
+
+/**
+ * Cache piksel hasil decode di disk, agar menjalankan ulang kompresi pada gambar
+ * besar yang sama tidak perlu mendekode JPEG/PNG lagi.
+ *
+ * Satu file cache per gambar sumber, dengan nama dari hash path, ukuran, dan waktu
+ * modifikasi file sumber. Isinya header kecil lalu tiga bidang piksel mentah
+ * (R, G, B) dalam urutan row-major yang sama dengan PixelBuffer. Bidang piksel
+ * dibaca dengan satu scatter read langsung ke array PixelBuffer. Yang dihemat
+ * adalah decode, bukan salinan: kernel error bekerja di atas byte[], dan file
+ * yang sering dipakai tetap dilayani dari page cache OS
+ */
+public class PixelCache {
+    private static final int MAGIC = 0x51545058; // "QTPX"
+    private static final int VERSION = 1;
+    
+    // Magic, versi, lebar, tinggi, ukuran dan waktu modifikasi sumber, panjang path
+    private static final int HEADER_BYTES = 36;
+    
+    private final File directory;
+    
+    public PixelCache(File directory) {
+        this.directory = directory;
+    }
+    
+    /**
+     * Direktori cache bawaan di dalam direktori temporer sistem
+     */
+    public static File defaultDirectory() {
+        return new File(System.getProperty("java.io.tmpdir"), "quadtree-pixel-cache");
+    }
+    
+    /**
+     * Mengembalikan piksel gambar dari cache jika masih sesuai dengan file sumber,
+     * atau mendekode gambar lalu menyimpannya ke cache
+     */
+    public PixelBuffer load(File source) throws IOException {
+        String path = source.getCanonicalPath();
+        long size = source.length();
+        long modified = source.lastModified();
+        File cacheFile = new File(directory, cacheName(path, size, modified));
+        
+        PixelBuffer cached = read(cacheFile, path, size, modified);
+        if (cached != null) {
+            return cached;
+        }
+        
+        BufferedImage image = ImageIO.read(source);
+        if (image == null) {
+            throw new IOException("Format gambar tidak didukung: " + source);
+        }
+        PixelBuffer pixels = PixelBuffer.fromImage(image);
+        try {
+            write(cacheFile, path, size, modified, pixels);
+        } catch (IOException e) {
+            // Cache hanya optimasi, kegagalan menulis tidak menggagalkan kompresi
+            System.err.println("Warning: gagal menulis cache piksel: " + e.getMessage());
+        }
+        return pixels;
+    }
+    
+    /**
+     * Membaca file cache. Mengembalikan null jika file tidak ada, rusak, atau milik sumber lain
+     */
+    private PixelBuffer read(File cacheFile, String path, long size, long modified) throws IOException {
+        if (!cacheFile.isFile()) {
+            return null;
+        }
+        
+        try (FileChannel channel = FileChannel.open(cacheFile.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            if (!readFully(channel, header) || header.getInt() != MAGIC || header.getInt() != VERSION) {
+                return null;
+            }
+            int width = header.getInt();
+            int height = header.getInt();
+            long sourceSize = header.getLong();
+            long sourceModified = header.getLong();
+            int pathLength = header.getInt();
+            if (sourceSize != size || sourceModified != modified
+                    || pathLength < 0 || pathLength > channel.size() - HEADER_BYTES) {
+                return null;
+            }
+            ByteBuffer pathBytes = ByteBuffer.allocate(pathLength);
+            if (!readFully(channel, pathBytes)) {
+                return null;
+            }
+            
+            long pixelCount = (long) width * height;
+            if (!path.equals(new String(pathBytes.array(), StandardCharsets.UTF_8))
+                    || width <= 0 || height <= 0 || pixelCount > Integer.MAX_VALUE
+                    || channel.size() - channel.position() != 3 * pixelCount) {
+                return null;
+            }
+            
+            // Bidang piksel dibaca langsung ke array PixelBuffer, satu salinan dari page cache tanpa decode
+            byte[] red = new byte[(int) pixelCount];
+            byte[] green = new byte[(int) pixelCount];
+            byte[] blue = new byte[(int) pixelCount];
+            ByteBuffer[] planes = {ByteBuffer.wrap(red), ByteBuffer.wrap(green), ByteBuffer.wrap(blue)};
+            while (planes[2].hasRemaining()) {
+                if (channel.read(planes) < 0) {
+                    return null;
+                }
+            }
+            return new PixelBuffer(width, height, red, green, blue);
+        }
+    }
+    
+    /**
+     * Mengisi buffer dari posisi channel saat ini, lalu menyiapkannya untuk dibaca.
+     * Mengembalikan false jika file habis lebih dulu
+     */
+    private static boolean readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                return false;
+            }
+        }
+        buffer.flip();
+        return true;
+    }
+    
+    /**
+     * Menulis file cache lewat file sementara yang lalu dipindahkan secara atomik,
+     * agar proses lain tidak pernah membaca file yang baru setengah jadi
+     */
+    private void write(File cacheFile, String path, long size, long modified, PixelBuffer pixels) throws IOException {
+        Files.createDirectories(directory.toPath());
+        Path temp = Files.createTempFile(directory.toPath(), cacheFile.getName(), ".tmp");
+        
+        try {
+            byte[] pathBytes = path.getBytes(StandardCharsets.UTF_8);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES + pathBytes.length);
+            header.putInt(MAGIC).putInt(VERSION)
+                .putInt(pixels.getWidth()).putInt(pixels.getHeight())
+                .putLong(size).putLong(modified)
+                .putInt(pathBytes.length).put(pathBytes)
+                .flip();
+            
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                ByteBuffer[] parts = {
+                    header, ByteBuffer.wrap(pixels.getRed()), ByteBuffer.wrap(pixels.getGreen()), ByteBuffer.wrap(pixels.getBlue())
+                };
+                while (parts[parts.length - 1].hasRemaining()) {
+                    channel.write(parts);
+                }
+            }
+            Files.move(temp, cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+    
+    private static String cacheName(String path, long size, long modified) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest((path + '\0' + size + '\0' + modified).getBytes(StandardCharsets.UTF_8));
+            StringBuilder name = new StringBuilder();
+            for (int i = 0; i < 16; i++) {
+                name.append(String.format("%02x", hash[i]));
+            }
+            return name.append(".qtpx").toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 tidak tersedia", e);
+        }
+    }
+}
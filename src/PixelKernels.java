@@ -0,0 +1,52 @@
+/**
+ * Kernel reduksi untuk satu baris piksel planar (lihat PixelBuffer): jumlah,
+ * jumlah kuadrat, deviasi absolut, dan min/max. Dipakai oleh ErrorMeasurementImpl,
+ * QuadTreeNode, dan MinMaxPyramid untuk loop dalam yang memindai piksel.
+ *
+ * Implementasi dipilih sekali saat kelas dimuat. VectorPixelKernels (src-vector,
+ * memakai jdk.incubator.vector) dipakai jika sudah dikompilasi dan JVM dijalankan
+ * dengan --add-modules jdk.incubator.vector, selain itu ScalarPixelKernels.
+ * Pilihan bisa dipaksa dengan -Dquadtree.kernels=scalar atau vector
+ */
+public interface PixelKernels {
+    PixelKernels INSTANCE = select();
+    
+    /**
+     * Menambahkan jumlah tiap kanal dan jumlah kuadrat ketiga kanal dari
+     * length piksel mulai offset ke sums {sumRed, sumGreen, sumBlue, sumSquares}
+     */
+    void sums(byte[] red, byte[] green, byte[] blue, int offset, int length, long[] sums);
+    
+    /**
+     * Jumlah |n * c - sum| ketiga kanal untuk length piksel mulai offset, dengan
+     * sums {sumRed, sumGreen, sumBlue, n} milik seluruh blok. Ini deviasi absolut
+     * terhadap rata-rata blok yang dikalikan n, sehingga tetap eksak dalam integer
+     */
+    long absoluteDeviation(byte[] red, byte[] green, byte[] blue, int offset, int length, long[] sums);
+    
+    /**
+     * Memperbarui range {minRed, minGreen, minBlue, maxRed, maxGreen, maxBlue}
+     * dengan length piksel mulai offset
+     */
+    void minMax(byte[] red, byte[] green, byte[] blue, int offset, int length, int[] range);
+    
+    /**
+     * Nama implementasi untuk ditampilkan, misalnya "scalar" atau "vector (256-bit)"
+     */
+    String name();
+    
+    private static PixelKernels select() {
+        String requested = System.getProperty("quadtree.kernels", "auto");
+        if (!requested.equals("scalar")) {
+            try {
+                // Dimuat lewat refleksi agar src/ tetap bisa dikompilasi tanpa modul incubator
+                return (PixelKernels) Class.forName("VectorPixelKernels").getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+                if (requested.equals("vector")) {
+                    System.err.println("Warning: kernel vector tidak tersedia, memakai scalar (" + e + ")");
+                }
+            }
+        }
+        return new ScalarPixelKernels();
+    }
+}
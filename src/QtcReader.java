@@ -0,0 +1,184 @@
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import javax.imageio.ImageIO;
+
+/**
+ * Pembaca format native .qtc (lihat QtcWriter untuk struktur file).
+ * Node dibaca secara streaming dalam urutan pre-order, sehingga gambar bisa
+ * dirasterisasi langsung tanpa menyimpan seluruh pohon di memori
+ */
+public class QtcReader {
+    /**
+     * Callback untuk setiap leaf yang dibaca
+     */
+    public interface LeafVisitor {
+        void visitLeaf(int x, int y, int width, int height, int rgb);
+    }
+    
+    // Batas kewajaran jumlah piksel dari header (satu terapiksel); mode tiled
+    // bisa menulis gambar di atas batas int, tapi header rusak tidak boleh lolos
+    private static final long MAX_PIXELS = 1L << 40;
+    
+    private final InputStream in;
+    private final int width;
+    private final int height;
+    private final int minBlockSize;
+    
+    // Byte kontrol yang sedang dibaca dan sisa bit split di dalamnya
+    private int control;
+    private int flagsLeft;
+    
+    public QtcReader(InputStream input) throws IOException {
+        DataInputStream header = new DataInputStream(input);
+        if (header.readInt() != QtcWriter.MAGIC) {
+            throw new IOException("Bukan file .qtc yang valid");
+        }
+        this.width = header.readInt();
+        this.height = header.readInt();
+        this.minBlockSize = header.readInt();
+        if (width <= 0 || height <= 0 || minBlockSize < 1 || (long) width * height > MAX_PIXELS) {
+            throw new IOException("Bukan file .qtc yang valid");
+        }
+        int flags = header.readUnsignedByte();
+        
+        InputStream body = (flags & QtcWriter.FLAG_DEFLATE) != 0
+            ? new InflaterInputStream(input, new Inflater(), 1 << 16)
+            : input;
+        this.in = new BufferedInputStream(body, 1 << 16);
+    }
+    
+    public int getWidth() {
+        return width;
+    }
+    
+    public int getHeight() {
+        return height;
+    }
+    
+    public int getMinBlockSize() {
+        return minBlockSize;
+    }
+    
+    /**
+     * Membaca semua leaf secara berurutan dan memanggil visitor untuk masing-masing
+     */
+    public void readLeaves(LeafVisitor visitor) throws IOException {
+        readLeaves(visitor, 0, 0, width, height);
+    }
+    
+    private void readLeaves(LeafVisitor visitor, int x, int y, int width, int height) throws IOException {
+        if (!readSplitFlag(width, height)) {
+            visitor.visitLeaf(x, y, width, height, readColor());
+            return;
+        }
+        
+        int westWidth = (width + 1) / 2;
+        int northHeight = (height + 1) / 2;
+        readLeaves(visitor, x, y, westWidth, northHeight);
+        readLeaves(visitor, x + westWidth, y, width - westWidth, northHeight);
+        readLeaves(visitor, x, y + northHeight, westWidth, height - northHeight);
+        readLeaves(visitor, x + westWidth, y + northHeight, width - westWidth, height - northHeight);
+    }
+    
+    /**
+     * Merasterisasi file langsung ke gambar RGB
+     */
+    public BufferedImage readImage() throws IOException {
+        if ((long) width * height > Integer.MAX_VALUE) {
+            throw new IOException("Gambar .qtc terlalu besar untuk dirasterisasi: " + width + "x" + height);
+        }
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        readLeaves(new BlockRasterizer(image)::fill);
+        return image;
+    }
+    
+    /**
+     * Membangun ulang pohon QuadTreeNode. Warna node internal dihitung dari
+     * rata-rata anak-anaknya yang dibobot luas blok
+     */
+    public QuadTreeNode readTree() throws IOException {
+        QuadTreeNode root = new QuadTreeNode(0, 0, width, height);
+        readNode(root);
+        return root;
+    }
+    
+    private void readNode(QuadTreeNode node) throws IOException {
+        if (!readSplitFlag(node.getWidth(), node.getHeight())) {
+            node.setAverageRGB(readColor());
+            return;
+        }
+        
+        node.split();
+        QuadTreeNode[] children = {
+            node.getNorthWest(), node.getNorthEast(), node.getSouthWest(), node.getSouthEast()
+        };
+        
+        long sumRed = 0, sumGreen = 0, sumBlue = 0, pixelCount = 0;
+        for (QuadTreeNode child : children) {
+            readNode(child);
+            long area = (long) child.getWidth() * child.getHeight();
+            int rgb = child.getAverageRGB();
+            sumRed += ((rgb >> 16) & 0xFF) * area;
+            sumGreen += ((rgb >> 8) & 0xFF) * area;
+            sumBlue += (rgb & 0xFF) * area;
+            pixelCount += area;
+        }
+        node.calculateAverage(sumRed, sumGreen, sumBlue, pixelCount);
+    }
+    
+    private boolean readSplitFlag(int width, int height) throws IOException {
+        if (!QuadTreeNode.isSplittable(width, height, minBlockSize)) {
+            return false;
+        }
+        if (flagsLeft == 0) {
+            control = readByte();
+            flagsLeft = 8;
+        }
+        boolean split = (control & 1) != 0;
+        control >>= 1;
+        flagsLeft--;
+        return split;
+    }
+    
+    private int readColor() throws IOException {
+        int red = readByte();
+        int green = readByte();
+        int blue = readByte();
+        return 0xFF000000 | red << 16 | green << 8 | blue;
+    }
+    
+    private int readByte() throws IOException {
+        int value = in.read();
+        if (value < 0) {
+            throw new EOFException("File .qtc terpotong");
+        }
+        return value;
+    }
+    
+    /**
+     * Mengubah file .qtc menjadi gambar biasa: java QtcReader input.qtc output.png
+     */
+    public static void main(String[] args) {
+        if (args.length != 2) {
+            System.out.println("Penggunaan: java QtcReader <input.qtc> <output.png|jpg|bmp>");
+            return;
+        }
+        
+        try (InputStream input = new FileInputStream(args[0])) {
+            BufferedImage image = new QtcReader(input).readImage();
+            String extension = args[1].substring(args[1].lastIndexOf('.') + 1);
+            ImageIO.write(image, extension, new File(args[1]));
+            System.out.println("Decoded image saved to: " + args[1]);
+        } catch (IOException e) {
+            System.err.println("Error decoding .qtc file: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,248 @@
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Penulis format native .qtc, yaitu quadtree yang diserialisasi langsung.
+ *
+ * Header: magic "QTC1", width, height, minBlockSize (int), flags (byte, bit 0 = deflate).
+ * Body: node dalam urutan pre-order (NW, NE, SW, SE). Node yang masih bisa dibagi
+ * (QuadTreeNode.isSplittable) punya satu bit split, node yang tidak bisa dibagi
+ * pasti leaf sehingga tidak perlu bit. Setiap leaf diikuti warna 3 byte (R, G, B).
+ * Bit split dikelompokkan per 8 dalam satu byte kontrol yang ditulis sebelum
+ * warna-warna milik kelompoknya, sehingga warna tetap sejajar byte dan mudah
+ * dikompresi deflate.
+ *
+ * Penulis bersifat streaming: node diberikan satu per satu lewat writeSplit dan
+ * writeLeaf, hanya tumpukan geometri sedalam pohon yang disimpan
+ */
+public class QtcWriter implements Closeable {
+    public static final int MAGIC = 0x51544331; // "QTC1"
+    public static final int FLAG_DEFLATE = 1;
+    
+    // magic, width, height, minBlockSize (4 byte masing-masing) dan flags (1 byte)
+    public static final int HEADER_BYTES = 17;
+    
+    private final OutputStream out;
+    private final DeflaterOutputStream deflater;
+    private final int minBlockSize;
+    
+    // Tumpukan geometri node yang belum ditulis: {x, y, width, height}
+    private final GeometryStack pending = new GeometryStack();
+    
+    // Kelompok bit split yang sedang dibuka beserta warna yang menunggu ditulis
+    private final ByteArrayOutputStream groupColors = new ByteArrayOutputStream();
+    private int control;
+    private int flagsInGroup;
+    private boolean groupOpen;
+    
+    private long nodeCount;
+    
+    public QtcWriter(OutputStream output, int width, int height, int minBlockSize, boolean deflate) throws IOException {
+        DataOutputStream header = new DataOutputStream(output);
+        header.writeInt(MAGIC);
+        header.writeInt(width);
+        header.writeInt(height);
+        header.writeInt(minBlockSize);
+        header.writeByte(deflate ? FLAG_DEFLATE : 0);
+        header.flush();
+        
+        this.deflater = deflate
+            ? new DeflaterOutputStream(output, new Deflater(Deflater.BEST_COMPRESSION), 1 << 16)
+            : null;
+        this.out = new BufferedOutputStream(deflate ? deflater : output, 1 << 16);
+        this.minBlockSize = minBlockSize;
+        pending.push(0, 0, width, height);
+    }
+    
+    /**
+     * Menulis seluruh pohon objek dalam satu panggilan
+     */
+    public static void write(QuadTreeNode root, int minBlockSize, OutputStream output, boolean deflate) throws IOException {
+        QtcWriter writer = new QtcWriter(output, root.getWidth(), root.getHeight(), minBlockSize, deflate);
+        writer.writeNode(root);
+        writer.finish();
+    }
+    
+    /**
+     * Menulis seluruh pohon ringkas dalam satu panggilan
+     */
+    public static void write(CompactQuadTree tree, int minBlockSize, OutputStream output, boolean deflate) throws IOException {
+        QtcWriter writer = new QtcWriter(output, tree.getWidth(), tree.getHeight(), minBlockSize, deflate);
+        writer.writeNode(tree, CompactQuadTree.ROOT);
+        writer.finish();
+    }
+    
+    /**
+     * Menulis sebuah subtree pada posisi pre-order berikutnya. Dipakai juga untuk
+     * menyambung subtree per tile di bawah node struktural yang ditulis dengan writeSplit
+     */
+    public void writeNode(QuadTreeNode node) throws IOException {
+        if (node.isLeaf()) {
+            writeLeaf(node.getAverageRGB());
+            return;
+        }
+        writeSplit();
+        writeNode(node.getNorthWest());
+        writeNode(node.getNorthEast());
+        writeNode(node.getSouthWest());
+        writeNode(node.getSouthEast());
+    }
+    
+    /**
+     * Menulis sebuah pohon ringkas sebagai subtree pada posisi pre-order berikutnya
+     */
+    public void writeNode(CompactQuadTree tree) throws IOException {
+        writeNode(tree, CompactQuadTree.ROOT);
+    }
+    
+    private void writeNode(CompactQuadTree tree, int index) throws IOException {
+        int child = tree.getFirstChild(index);
+        if (child == CompactQuadTree.NO_CHILD) {
+            writeLeaf(tree.getColor(index));
+            return;
+        }
+        writeSplit();
+        for (int i = 0; i < 4; i++) {
+            writeNode(tree, child + i);
+        }
+    }
+    
+    /**
+     * Node berikutnya dalam urutan pre-order dibagi menjadi empat
+     */
+    public void writeSplit() throws IOException {
+        nextNode();
+        int x = pending.x, y = pending.y, width = pending.width, height = pending.height;
+        if (!QuadTreeNode.isSplittable(width, height, minBlockSize)) {
+            throw new IllegalStateException("Blok " + width + "x" + height + " tidak bisa dibagi");
+        }
+        writeFlag(true);
+        
+        // Anak didorong terbalik agar NW keluar lebih dulu
+        int westWidth = (width + 1) / 2;
+        int northHeight = (height + 1) / 2;
+        pending.push(x + westWidth, y + northHeight, width - westWidth, height - northHeight);
+        pending.push(x, y + northHeight, westWidth, height - northHeight);
+        pending.push(x + westWidth, y, width - westWidth, northHeight);
+        pending.push(x, y, westWidth, northHeight);
+    }
+    
+    /**
+     * Node berikutnya dalam urutan pre-order adalah leaf dengan warna ini
+     */
+    public void writeLeaf(int rgb) throws IOException {
+        nextNode();
+        if (QuadTreeNode.isSplittable(pending.width, pending.height, minBlockSize)) {
+            writeFlag(false);
+        }
+        
+        OutputStream target = groupOpen ? groupColors : out;
+        target.write(rgb >> 16);
+        target.write(rgb >> 8);
+        target.write(rgb);
+    }
+    
+    /**
+     * Menutup kelompok bit terakhir dan mengosongkan buffer, tanpa menutup stream tujuan
+     */
+    public void finish() throws IOException {
+        if (!pending.isEmpty()) {
+            throw new IllegalStateException("Masih ada " + pending.size() + " node yang belum ditulis");
+        }
+        flushGroup();
+        out.flush();
+        if (deflater != null) {
+            deflater.finish();
+            deflater.flush();
+        }
+    }
+    
+    @Override
+    public void close() throws IOException {
+        finish();
+        out.close();
+    }
+    
+    /**
+     * Jumlah node yang sudah ditulis
+     */
+    public long getNodeCount() {
+        return nodeCount;
+    }
+    
+    private void nextNode() {
+        if (pending.isEmpty()) {
+            throw new IllegalStateException("Semua node sudah ditulis");
+        }
+        nodeCount++;
+        pending.pop();
+    }
+    
+    private void writeFlag(boolean split) throws IOException {
+        if (groupOpen && flagsInGroup == 8) {
+            flushGroup();
+        }
+        if (!groupOpen) {
+            groupOpen = true;
+            control = 0;
+            flagsInGroup = 0;
+        }
+        if (split) {
+            control |= 1 << flagsInGroup;
+        }
+        flagsInGroup++;
+    }
+    
+    private void flushGroup() throws IOException {
+        if (!groupOpen) {
+            return;
+        }
+        out.write(control);
+        groupColors.writeTo(out);
+        groupColors.reset();
+        groupOpen = false;
+    }
+    
+    /**
+     * Tumpukan {x, y, width, height} sederhana. pop mengisi field x, y, width, height
+     */
+    private static final class GeometryStack {
+        private int[] data = new int[4 * 64];
+        private int top;
+        
+        int x, y, width, height;
+        
+        void push(int x, int y, int width, int height) {
+            if (top + 4 > data.length) {
+                data = Arrays.copyOf(data, data.length * 2);
+            }
+            data[top++] = x;
+            data[top++] = y;
+            data[top++] = width;
+            data[top++] = height;
+        }
+        
+        void pop() {
+            top -= 4;
+            x = data[top];
+            y = data[top + 1];
+            width = data[top + 2];
+            height = data[top + 3];
+        }
+        
+        boolean isEmpty() {
+            return top == 0;
+        }
+        
+        int size() {
+            return top / 4;
+        }
+    }
+}
@@ -1,118 +1,1111 @@
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Locale;
 import java.util.Scanner;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import javax.imageio.ImageIO;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
 /**
  * Kelas utama untuk proses kompresi gambar dengan quadtree
  */
 public class QuadTreeCompression {
+    // Blok dengan luas di bawah ini dibangun sekuensial dalam mode paralel
+    public static final int DEFAULT_SEQUENTIAL_CUTOFF = 128 * 128;
+    
+    // Strategi pembangunan quadtree
+    public static final int BUILD_TOP_DOWN = 1;
+    public static final int BUILD_BOTTOM_UP = 2;
+    public static final int BUILD_BEST_FIRST = 3;
+    
+    // Format yang ukurannya dilaporkan printStatistics
+    private static final String STATISTICS_FORMAT = "png";
+    
+    // Batas encode sebenarnya per pencarian TARGET_COMPRESSION_PERCENTAGE
+    private static final int MAX_SIZE_PROBES = 8;
+    
+    // Hasil yang muat dan paling jauh sebesar ini di bawah batas dianggap cukup dekat
+    private static final double SIZE_TOLERANCE = 0.01;
+    
+    // Jenis target untuk compressToTarget
+    public static final int TARGET_COMPRESSION_PERCENTAGE = 1;
+    public static final int TARGET_LEAF_COUNT = 2;
+    public static final int TARGET_BYTE_SIZE = 3;
+    
     private BufferedImage originalImage;
     private BufferedImage compressedImage;
+    private PixelBuffer pixels;
     private QuadTreeNode rootNode;
+    private IntegralImage integralImage;
     private ErrorMeasurement errorMeasurement;
     private String originalImagePath;
     
+    private int errorMethod;
     private int minBlockSize;
     private double threshold;
     private int treeDepth;
     private int nodeCount;
     private long executionTime;
+    private long cpuTime;
+    
+    // Jumlah thread untuk membangun quadtree, 1 berarti sekuensial
+    private int parallelism = 1;
+    private int sequentialCutoff = DEFAULT_SEQUENTIAL_CUTOFF;
+    private int buildStrategy = BUILD_TOP_DOWN;
+    
+    // Batas untuk BUILD_BEST_FIRST, Long.MAX_VALUE berarti tanpa batas
+    private long nodeBudget = Long.MAX_VALUE;
+    private long memoryBudget = Long.MAX_VALUE;
+    private long timeBudget = Long.MAX_VALUE;
+    private int stopReason = BestFirstBuilder.COMPLETED;
+    
+    // Jika true, pohon disimpan sebagai CompactQuadTree, bukan objek QuadTreeNode
+    private boolean useCompactTree;
+    private CompactQuadTree compactTree;
+    
+    // Pohon error lengkap untuk mode target, dibangun saat pertama dibutuhkan
+    private ErrorTree errorTree;
+    
+    // Piramida min/max untuk MAX_PIXEL_DIFFERENCE pada pembangunan top-down, null untuk metode lain
+    private MinMaxPyramid minMaxPyramid;
+    
+    // Format dan ukuran file terakhir dari saveCompressedImage, dipakai ulang oleh printStatistics
+    private String savedFormat;
+    private long savedSize;
+    
+    // Format file hasil untuk TARGET_COMPRESSION_PERCENTAGE
+    private String targetFormat = STATISTICS_FORMAT;
+    
+    // Jika true, printStatistics memakai perkiraan ukuran dari pohon, tanpa encode sama sekali
+    private boolean estimateSize;
+    
+    // Waktu per tahap, penghitung evaluasi, dan bentuk pohon
+    private final CompressionStats stats = new CompressionStats();
+    
+    // Cache hasil yang bisa dipakai bersama banyak kompresor, null jika tidak dipakai
+    private ResultCache resultCache;
+    
+    // Kunci cache untuk pohon saat ini, null jika pohon tidak berasal dari compress() dengan cache
+    private String cacheKey;
+    
+    // Piramida momen untuk updateRegion, dibangun saat edit pertama dan diperbarui per edit
+    private IncrementalTreeUpdater regionUpdater;
+    
+    // Jika true, treeDepth, nodeCount, dan node per kedalaman di stats belum mengikuti updateRegion terakhir
+    private boolean treeShapeStale;
+    
+    // Jika true, compressedImage belum digambar dari pohon saat ini, misalnya pohon dari cache
+    private boolean renderPending;
     
     // Konstruktor
     public QuadTreeCompression(String inputImagePath, int errorMethod, double threshold, int minBlockSize) {
         try {
             this.originalImagePath = inputImagePath;
-            this.originalImage = ImageIO.read(new File(inputImagePath));
-            this.compressedImage = new BufferedImage(
-                originalImage.getWidth(),
-                originalImage.getHeight(),
-                originalImage.getType()
-            );
-            
-            // Salin gambar asli ke gambar terkompresi sebagai permulaan
-            for (int x = 0; x < originalImage.getWidth(); x++) {
-                for (int y = 0; y < originalImage.getHeight(); y++) {
-                    compressedImage.setRGB(x, y, originalImage.getRGB(x, y));
-                }
+            stats.setSource(inputImagePath);
+            CompressionStats.Timer decode = stats.start(CompressionStats.DECODE);
+            BufferedImage image = ImageIO.read(new File(inputImagePath));
+            if (image != null) {
+                stats.setDimensions(image.getWidth(), image.getHeight());
             }
-            
-            this.errorMeasurement = new ErrorMeasurementImpl(errorMethod);
-            this.threshold = threshold;
-            this.minBlockSize = minBlockSize;
+            decode.stop();
+            initialize(image, errorMethod, threshold, minBlockSize);
         } catch (IOException e) {
             System.err.println("Error loading image: " + e.getMessage());
         }
     }
     
+    /**
+     * Konstruktor untuk gambar yang sudah didekode, misalnya oleh pipeline batch
+     * 
+     * @param sourcePath Path file asal untuk statistik ukuran
+     */
+    public QuadTreeCompression(BufferedImage image, String sourcePath, int errorMethod, double threshold, int minBlockSize) {
+        this.originalImagePath = sourcePath;
+        stats.setSource(sourcePath);
+        initialize(image, errorMethod, threshold, minBlockSize);
+    }
+    
+    /**
+     * Konstruktor untuk piksel yang sudah tersedia, misalnya dari PixelCache,
+     * sehingga gambar sumber tidak perlu didekode
+     * 
+     * @param sourcePath Path file asal untuk statistik ukuran
+     */
+    public QuadTreeCompression(PixelBuffer pixels, String sourcePath, int errorMethod, double threshold, int minBlockSize) {
+        this.originalImagePath = sourcePath;
+        stats.setSource(sourcePath);
+        this.compressedImage = new BufferedImage(pixels.getWidth(), pixels.getHeight(), BufferedImage.TYPE_INT_RGB);
+        initialize(pixels, errorMethod, threshold, minBlockSize);
+    }
+    
+    private void initialize(BufferedImage image, int errorMethod, double threshold, int minBlockSize) {
+        this.originalImage = image;
+        // Tidak perlu menyalin gambar asli, setiap piksel ditimpa oleh leaf saat render
+        this.compressedImage = new BufferedImage(
+            originalImage.getWidth(),
+            originalImage.getHeight(),
+            originalImage.getType()
+        );
+        
+        stats.setDimensions(image.getWidth(), image.getHeight());
+        CompressionStats.Timer extract = stats.start(CompressionStats.EXTRACT);
+        PixelBuffer extracted = PixelBuffer.fromImage(originalImage);
+        extract.stop();
+        initialize(extracted, errorMethod, threshold, minBlockSize);
+    }
+    
+    private void initialize(PixelBuffer pixels, int errorMethod, double threshold, int minBlockSize) {
+        // Piksel diekstrak sekali, integral image baru dibangun saat pohon pertama kali dibangun
+        this.pixels = pixels;
+        stats.setDimensions(pixels.getWidth(), pixels.getHeight());
+        this.errorMethod = errorMethod;
+        this.threshold = threshold;
+        this.minBlockSize = minBlockSize;
+    }
+    
     /**
      * Memulai proses kompresi
      */
     public void compress() {
-        long startTime = System.currentTimeMillis();
+        long startTime = System.nanoTime();
+        long startCpuTime = currentCpuTime();
+        
+        // Kunci cache tidak memuat batas best-first, pohon yang dibatasi tidak disimpan maupun diambil dari cache
+        String key = resultCache != null && !hasBuildBudget() ? lookupCacheKey() : null;
+        if (key != null && restoreFromCache(key)) {
+            // Hasil encode biasanya juga ada di cache, gambar penuh baru dirender jika dibutuhkan
+            measureTree();
+        } else {
+            buildTree();
+            if (key != null) {
+                resultCache.putTree(key, compactTree != null ? compactTree : CompactQuadTree.fromNode(rootNode));
+            }
+            renderAndMeasure();
+        }
+        cacheKey = key;
+        
+        executionTime = (System.nanoTime() - startTime) / 1_000_000;
+        cpuTime = (currentCpuTime() - startCpuTime) / 1_000_000;
+    }
+    
+    /**
+     * Memasang cache hasil di depan compress(). Kompresi dengan piksel dan parameter
+     * yang sama memakai ulang pohon dan hasil encode dari cache
+     */
+    public void setResultCache(ResultCache resultCache) {
+        this.resultCache = resultCache;
+    }
+    
+    /**
+     * Kunci cache untuk hasil compress() terakhir, atau null tanpa cache
+     */
+    public String getCacheKey() {
+        return cacheKey;
+    }
+    
+    private String lookupCacheKey() {
+        CompressionStats.Timer hash = stats.start(CompressionStats.CACHE);
+        String key = ResultCache.key(pixels, errorMethod, threshold, minBlockSize);
+        hash.stop();
+        return key;
+    }
+    
+    /**
+     * Apakah BUILD_BEST_FIRST dibatasi jumlah node, memori, atau waktu
+     */
+    private boolean hasBuildBudget() {
+        return buildStrategy == BUILD_BEST_FIRST && !useCompactTree
+            && (nodeBudget != Long.MAX_VALUE || memoryBudget != Long.MAX_VALUE || timeBudget != Long.MAX_VALUE);
+    }
+    
+    /**
+     * Memakai pohon dari cache jika ada, pohon itu dipakai bersama dan tidak diubah
+     */
+    private boolean restoreFromCache(String key) {
+        CompactQuadTree cached = resultCache.getTree(key);
+        if (cached == null) {
+            return false;
+        }
         
-        // Buat node root untuk seluruh gambar
-        rootNode = new QuadTreeNode(0, 0, originalImage.getWidth(), originalImage.getHeight());
+        stopReason = BestFirstBuilder.COMPLETED;
+        minMaxPyramid = null;
+        if (useCompactTree) {
+            rootNode = null;
+            compactTree = cached;
+        } else {
+            compactTree = null;
+            rootNode = cached.toNode();
+        }
+        return true;
+    }
+    
+    /**
+     * Membangun quadtree saja, tanpa render dan pengukuran waktu
+     */
+    public void buildTree() {
+        ensureIntegralImage();
+        CompressionStats.Timer build = stats.start(CompressionStats.BUILD);
+        stopReason = BestFirstBuilder.COMPLETED;
+        cacheKey = null;
         
-        // Bangun quadtree dengan algoritma divide and conquer
-        buildQuadTree(rootNode, originalImage);
+        // Max Pixel Difference tiap node dijawab O(1) dari piramida min/max pada pembangunan top-down
+        minMaxPyramid = errorMethod == ErrorMeasurementImpl.MAX_PIXEL_DIFFERENCE
+                && (useCompactTree || buildStrategy == BUILD_TOP_DOWN)
+            ? new MinMaxPyramid(pixels, minBlockSize)
+            : null;
         
-        // Normalisasi warna untuk setiap blok
-        ImageProcessor.normalizeBlock(compressedImage, rootNode);
+        if (useCompactTree) {
+            // Bangun langsung ke representasi ringkas tanpa objek QuadTreeNode
+            rootNode = null;
+            compactTree = new CompactQuadTree(pixels.getWidth(), pixels.getHeight());
+            buildCompactTree(CompactQuadTree.ROOT, MinMaxPyramid.ROOT, 0, 0, pixels.getWidth(), pixels.getHeight());
+            compactTree.trim();
+        } else {
+            compactTree = null;
+            
+            // Buat node root untuk seluruh gambar
+            rootNode = new QuadTreeNode(0, 0, pixels.getWidth(), pixels.getHeight());
+            
+            // Bangun quadtree dengan algoritma divide and conquer
+            if (buildStrategy == BUILD_BOTTOM_UP) {
+                MomentPyramid pyramid = new MomentPyramid(pixels, minBlockSize);
+                double[] entropy = errorMethod == ErrorMeasurementImpl.ENTROPY
+                    ? EntropyEngine.potentialTreeEntropy(pixels, minBlockSize)
+                    : null;
+                buildFromPyramid(rootNode, pyramid, entropy, MomentPyramid.ROOT);
+            } else if (buildStrategy == BUILD_BEST_FIRST) {
+                // Blok dengan error tertinggi dibagi lebih dulu sampai selesai atau batas tercapai
+                BestFirstBuilder builder = new BestFirstBuilder(
+                    pixels, integralImage, errorMeasurement, threshold, minBlockSize
+                );
+                builder.setNodeBudget(nodeBudget);
+                builder.setMemoryBudget(memoryBudget);
+                builder.setTimeBudget(timeBudget);
+                stopReason = builder.build(rootNode);
+                stats.addEvaluations(builder.getEvaluationCount(), scansPixels() ? builder.getEvaluatedPixels() : 0);
+            } else if (parallelism > 1) {
+                ForkJoinPool pool = new ForkJoinPool(parallelism);
+                try {
+                    pool.invoke(new BuildTask(rootNode, MinMaxPyramid.ROOT));
+                } finally {
+                    pool.shutdown();
+                }
+            } else {
+                buildQuadTree(rootNode, pixels, MinMaxPyramid.ROOT);
+            }
+        }
+        build.stop();
+    }
+    
+    /**
+     * Kompresi dengan target ukuran, bukan threshold. Pohon error lengkap dibangun
+     * sekali (disimpan untuk pemanggilan berikutnya), lalu threshold dicari dengan
+     * binary search di atas error yang sudah tersimpan tanpa membaca piksel lagi.
+     * Untuk persentase kompresi, pencarian memakai model ukuran di atas pohon
+     * (perkiraan .qtc dikali rasio hasil encode), dikalibrasi dengan encode
+     * sebenarnya ke format file hasil (lihat setTargetFormat). Hanya beberapa
+     * kandidat yang di-encode, lihat findThresholdForEncodedSize
+     * 
+     * @param targetType TARGET_COMPRESSION_PERCENTAGE (0.0-1.0, 1.0 = 100%, relatif
+     *                   terhadap ukuran file sumber), TARGET_LEAF_COUNT, atau
+     *                   TARGET_BYTE_SIZE (perkiraan ukuran file .qtc)
+     * @return Threshold yang dipilih
+     */
+    public double compressToTarget(int targetType, double targetValue) {
+        long startTime = System.nanoTime();
+        long startCpuTime = currentCpuTime();
+        stopReason = BestFirstBuilder.COMPLETED;
+        cacheKey = null;
+        ensureIntegralImage();
+        CompressionStats.Timer search = stats.start(CompressionStats.TARGET_SEARCH);
+        
+        if (errorTree == null) {
+            errorTree = new ErrorTree(pixels, integralImage, errorMeasurement, minBlockSize);
+        }
+        
+        threshold = switch (targetType) {
+            case TARGET_LEAF_COUNT -> errorTree.findThresholdForLeafCount((long) targetValue);
+            case TARGET_BYTE_SIZE -> errorTree.findThresholdForByteSize((long) targetValue);
+            case TARGET_COMPRESSION_PERCENTAGE -> {
+                if (originalImagePath == null) {
+                    throw new IllegalStateException("Target persentase kompresi membutuhkan path file sumber");
+                }
+                if (!canEncode(compressedImage, targetFormat)) {
+                    throw new IllegalArgumentException("Gambar ini tidak bisa ditulis sebagai " + targetFormat);
+                }
+                long maxBytes = (long) (new File(originalImagePath).length() * (1.0 - targetValue));
+                yield findThresholdForEncodedSize(maxBytes);
+            }
+            default -> throw new IllegalArgumentException("Jenis target tidak dikenal: " + targetType);
+        };
+        
+        if (useCompactTree) {
+            rootNode = null;
+            compactTree = errorTree.toCompactTree(threshold);
+        } else {
+            compactTree = null;
+            rootNode = errorTree.toTree(threshold);
+        }
+        search.stop();
         
-        // Hitung statistik
-        treeDepth = ImageProcessor.calculateTreeDepth(rootNode);
-        nodeCount = ImageProcessor.countNodes(rootNode);
+        renderAndMeasure();
+        
+        executionTime = (System.nanoTime() - startTime) / 1_000_000;
+        cpuTime = (currentCpuTime() - startCpuTime) / 1_000_000;
+        return threshold;
+    }
+    
+    /**
+     * Threshold terkecil yang ditemukan dengan ukuran hasil encode paling besar maxBytes.
+     * Pencarian berjalan di atas perkiraan ukuran .qtc dari pohon (estimateByteSize),
+     * yang binary search-nya hanya sebanding dengan ukuran pohon. Ukuran hasil encode
+     * dimodelkan sebagai pangkat dari perkiraan itu (lihat powerLawEstimate), karena PNG
+     * dan JPEG tumbuh lebih lambat dari jumlah leaf, dan model itu dikalibrasi dengan
+     * encode sebenarnya. Sebelum ada pasangan pengapit (kandidat terbesar yang terlalu
+     * besar dan kandidat terkecil yang muat) model diekstrapolasi dari dua encode
+     * terakhir, sesudahnya diinterpolasi di antara kedua ujung pengapit. Berhenti saat
+     * hasil yang muat sudah dalam SIZE_TOLERANCE dari batas, saat tidak ada kandidat
+     * baru di dalam pengapit, atau setelah MAX_SIZE_PROBES encode. Jika tidak ada yang
+     * muat, dipakai pohon terkecil seperti pada target lain
+     */
+    private double findThresholdForEncodedSize(long maxBytes) {
+        double fitting = Double.NaN;
+        double overflowing = Double.NaN;
+        long fittingEstimate = 0, fittingSize = 0;
+        long overflowingEstimate = 0, overflowingSize = 0;
+        long lastEstimate = 0, lastSize = 0;
+        boolean lastFits = false;
+        int sameSide = 0;
+        double target = maxBytes;
         
-        executionTime = System.currentTimeMillis() - startTime;
+        for (int probe = 0; probe < MAX_SIZE_PROBES; probe++) {
+            double candidate = errorTree.findThresholdForByteSize((long) target);
+            if (!insideBracket(candidate, overflowing, fitting)) {
+                if (Double.isNaN(fitting) || Double.isNaN(overflowing)) {
+                    break;
+                }
+                candidate = errorTree.findThresholdForByteSize((overflowingEstimate + fittingEstimate) / 2);
+                if (!insideBracket(candidate, overflowing, fitting)) {
+                    break;
+                }
+            }
+            
+            long estimate = errorTree.estimateByteSize(candidate);
+            long size = encodedSizeAt(candidate);
+            boolean fits = size <= maxBytes;
+            sameSide = probe > 0 && fits == lastFits ? sameSide + 1 : 0;
+            if (fits) {
+                fitting = candidate;
+                fittingEstimate = estimate;
+                fittingSize = size;
+                if (size >= maxBytes * (1.0 - SIZE_TOLERANCE)) {
+                    break;
+                }
+            } else {
+                overflowing = candidate;
+                overflowingEstimate = estimate;
+                overflowingSize = size;
+            }
+            
+            if (Double.isNaN(fitting) || Double.isNaN(overflowing)) {
+                // Belum terapit: ekstrapolasi dari dua encode terakhir, atau rasio untuk yang pertama
+                target = lastSize > 0
+                    ? powerLawEstimate(lastEstimate, lastSize, estimate, size, maxBytes)
+                    : (double) estimate * maxBytes / size;
+            } else if (sameSide >= 2) {
+                // Ujung yang sama bergeser tiga kali berturut-turut, pengapit dibelah dua agar ujung lain ikut bergerak
+                target = Math.sqrt((double) overflowingEstimate * fittingEstimate);
+            } else {
+                target = powerLawEstimate(overflowingEstimate, overflowingSize, fittingEstimate, fittingSize, maxBytes);
+            }
+            lastEstimate = estimate;
+            lastSize = size;
+            lastFits = fits;
+        }
+        return Double.isNaN(fitting) ? errorTree.findThresholdForLeafCount(1) : fitting;
+    }
+    
+    /**
+     * Perkiraan .qtc yang memberi ukuran encode maxBytes menurut model pangkat
+     * ukuran = c * perkiraan^k lewat dua titik ukur. Jika eksponen tidak bisa
+     * dihitung atau tidak positif, dipakai model sebanding (k = 1)
+     */
+    private static double powerLawEstimate(long estimate0, long size0, long estimate1, long size1, long maxBytes) {
+        double exponent = Math.log((double) size1 / size0) / Math.log((double) estimate1 / estimate0);
+        if (!(exponent > 0) || Double.isInfinite(exponent)) {
+            exponent = 1.0;
+        }
+        return estimate1 * Math.exp(Math.log((double) maxBytes / size1) / exponent);
+    }
+    
+    /**
+     * Apakah threshold berada tepat di antara batas pengapit, NaN berarti batas belum diketahui
+     */
+    private static boolean insideBracket(double threshold, double overflowing, double fitting) {
+        return !(threshold <= overflowing) && !(threshold >= fitting);
+    }
+    
+    /**
+     * Ukuran file hasil dalam targetFormat untuk threshold kandidat, di-encode ke
+     * stream penghitung. Raster kandidat digambar ke compressedImage, yang digambar
+     * ulang dari pohon terpilih setelah pencarian selesai
+     */
+    private long encodedSizeAt(double candidate) {
+        CompactQuadTree tree = errorTree.toCompactTree(candidate);
+        try {
+            if (targetFormat.equals("qtc")) {
+                CountingOutputStream counter = new CountingOutputStream();
+                QtcWriter.write(tree, minBlockSize, counter, true);
+                return counter.getCount();
+            }
+            new BlockRasterizer(compressedImage).render(tree, parallelism);
+            return encodedSize(compressedImage, targetFormat);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    /**
+     * Format file hasil (ekstensi, atau qtc) yang diukur TARGET_COMPRESSION_PERCENTAGE, default png
+     */
+    public void setTargetFormat(String format) {
+        this.targetFormat = format.toLowerCase(Locale.ROOT);
+    }
+    
+    /**
+     * Menerapkan edit piksel lokal ke gambar sumber, lalu memperbarui pohon dan
+     * compressedImage hanya di bagian yang terpengaruh. Node yang bloknya tidak
+     * menyentuh region dipakai apa adanya, leaf yang berubah langsung digambar
+     * ulang. Hasilnya identik dengan compress() ulang pada gambar yang sudah diedit.
+     *
+     * Edit pertama membangun MomentPyramid sekali (sebanding dengan luas gambar),
+     * edit berikutnya sebanding dengan luas region dan jumlah node di atasnya.
+     * Integral image dan pohon error untuk mode target tidak diperbarui per edit,
+     * keduanya dibangun ulang saat buildTree atau compressToTarget berikutnya.
+     * Untuk pohon ringkas, atau pohon yang dipotong batas best-first, pohon
+     * dibangun ulang penuh
+     *
+     * @param x Kolom kiri region di gambar
+     * @param y Baris atas region di gambar
+     * @param region Piksel baru, harus muat di dalam gambar
+     */
+    public void updateRegion(int x, int y, BufferedImage region) {
+        checkTreeBuilt();
+        CompressionStats.Timer update = stats.start(CompressionStats.UPDATE);
+        pixels.setRegion(x, y, region);
+        if (originalImage != null) {
+            int width = region.getWidth();
+            originalImage.setRGB(x, y, width, region.getHeight(), region.getRGB(0, 0, width, region.getHeight(), null, 0, width), 0, width);
+        }
+        
+        // Turunan dari piksel lama tidak berlaku lagi
+        integralImage = null;
+        errorTree = null;
+        minMaxPyramid = null;
+        cacheKey = null;
+        savedFormat = null;
+        
+        if (rootNode == null || stopReason != BestFirstBuilder.COMPLETED) {
+            regionUpdater = null;
+            update.stop();
+            buildTree();
+            renderAndMeasure();
+            return;
+        }
+        
+        // Piramida pertama dibangun dari piksel yang sudah diedit, update berikutnya hanya memindai ulang region
+        if (regionUpdater == null) {
+            regionUpdater = new IncrementalTreeUpdater(pixels, errorMethod, threshold, minBlockSize);
+        }
+        regionUpdater.setThreshold(threshold);
+        ensureRendered();
+        regionUpdater.update(rootNode, pixels, DirtyRegion.rectangle(x, y, region.getWidth(), region.getHeight()),
+            new BlockRasterizer(compressedImage));
+        stats.addEvaluations(regionUpdater.getEvaluatedNodes(), regionUpdater.getScannedPixels());
+        treeShapeStale = true;
+        update.stop();
+    }
+    
+    /**
+     * Integral image dibangun saat pohon pertama kali dibangun dari piksel, sehingga
+     * hit cache tidak membayarnya. Setelah updateRegion membuangnya, dibangun ulang
+     * di sini saat pohon berikutnya dibangun dari awal
+     */
+    private void ensureIntegralImage() {
+        if (integralImage == null) {
+            CompressionStats.Timer integral = stats.start(CompressionStats.INTEGRAL);
+            integralImage = new IntegralImage(pixels);
+            integral.stop();
+            errorMeasurement = new ErrorMeasurementImpl(errorMethod, integralImage);
+        }
+    }
+    
+    /**
+     * Menghitung ulang bentuk pohon setelah updateRegion, hanya saat statistik diminta
+     */
+    private void refreshTreeShape() {
+        if (treeShapeStale) {
+            stats.recordTree(rootNode);
+            treeDepth = stats.getNodesPerDepth().length;
+            nodeCount = (int) stats.getNodeCount();
+            treeShapeStale = false;
+        }
+    }
+    
+    /**
+     * Menormalisasi warna gambar dari pohon yang sudah dibangun dan menghitung statistiknya
+     */
+    private void renderAndMeasure() {
+        measureTree();
+        ensureRendered();
+    }
+    
+    /**
+     * Mencatat bentuk pohon yang baru dibangun atau diambil dari cache. Gambar
+     * hasil belum mengikuti pohon ini sampai ensureRendered dipanggil
+     */
+    private void measureTree() {
+        // Gambar berubah, ukuran file yang pernah disimpan tidak berlaku lagi
+        savedFormat = null;
+        renderPending = true;
+        
+        treeShapeStale = false;
+        if (compactTree != null) {
+            stats.recordTree(compactTree);
+        } else {
+            stats.recordTree(rootNode);
+        }
+        
+        // Kedalaman dan jumlah node dari traversal yang sama dengan node per kedalaman
+        treeDepth = stats.getNodesPerDepth().length;
+        nodeCount = (int) stats.getNodeCount();
+    }
+    
+    /**
+     * Menggambar compressedImage dari pohon saat ini jika belum
+     */
+    private void ensureRendered() {
+        if (!renderPending) {
+            return;
+        }
+        CompressionStats.Timer render = stats.start(CompressionStats.RENDER);
+        BlockRasterizer rasterizer = new BlockRasterizer(compressedImage);
+        if (compactTree != null) {
+            rasterizer.render(compactTree, parallelism);
+        } else {
+            // Normalisasi warna untuk setiap blok, paralel per subtree jika --threads dipakai
+            rasterizer.render(rootNode, parallelism);
+        }
+        render.stop();
+        renderPending = false;
+    }
+    
+    /**
+     * Mengatur jumlah thread untuk membangun quadtree (1 = sekuensial)
+     */
+    public void setParallelism(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Jumlah thread minimal 1");
+        }
+        this.parallelism = threads;
+    }
+    
+    /**
+     * Memilih strategi pembangunan quadtree (BUILD_TOP_DOWN, BUILD_BOTTOM_UP, atau BUILD_BEST_FIRST)
+     */
+    public void setBuildStrategy(int strategy) {
+        if (strategy != BUILD_TOP_DOWN && strategy != BUILD_BOTTOM_UP && strategy != BUILD_BEST_FIRST) {
+            throw new IllegalArgumentException("Strategi build tidak dikenal: " + strategy);
+        }
+        this.buildStrategy = strategy;
+    }
+    
+    /**
+     * Batas jumlah node untuk BUILD_BEST_FIRST
+     */
+    public void setNodeBudget(long maxNodes) {
+        this.nodeBudget = maxNodes;
+    }
+    
+    /**
+     * Batas perkiraan memori pohon dalam byte untuk BUILD_BEST_FIRST
+     */
+    public void setMemoryBudget(long maxBytes) {
+        this.memoryBudget = maxBytes;
+    }
+    
+    /**
+     * Batas waktu pembangunan pohon dalam milidetik untuk BUILD_BEST_FIRST
+     */
+    public void setTimeBudget(long millis) {
+        this.timeBudget = millis;
+    }
+    
+    /**
+     * Memilih representasi pohon ringkas (CompactQuadTree) sebagai pengganti
+     * pohon objek QuadTreeNode. Mode ini memakai pembangunan top-down sekuensial
+     */
+    public void setCompactTree(boolean useCompactTree) {
+        this.useCompactTree = useCompactTree;
+    }
+    
+    public QuadTreeNode getRootNode() {
+        return rootNode;
+    }
+    
+    public CompactQuadTree getCompactTree() {
+        return compactTree;
+    }
+    
+    public BufferedImage getCompressedImage() {
+        ensureRendered();
+        return compressedImage;
+    }
+    
+    /**
+     * Tipe BufferedImage gambar hasil, bagian dari kunci hasil encode di cache
+     */
+    public int getOutputImageType() {
+        return compressedImage.getType();
+    }
+    
+    /**
+     * Warna RGB hasil kompresi di (x, y), dibaca dari pohon tanpa render
+     */
+    public int colorAt(int x, int y) {
+        checkTreeBuilt();
+        return compactTree != null ? TreeQuery.colorAt(compactTree, x, y) : TreeQuery.colorAt(rootNode, x, y);
+    }
+    
+    /**
+     * Warna RGB hasil kompresi untuk banyak titik, hasil ke-i untuk (xs[i], ys[i])
+     */
+    public int[] colorsAt(int[] xs, int[] ys) {
+        checkTreeBuilt();
+        return compactTree != null ? TreeQuery.colorsAt(compactTree, xs, ys) : TreeQuery.colorsAt(rootNode, xs, ys);
+    }
+    
+    /**
+     * Potongan hasil kompresi, dirender hanya dari leaf yang bersinggungan dengan region
+     */
+    public BufferedImage extractRegion(int x, int y, int width, int height) {
+        checkTreeBuilt();
+        return compactTree != null
+            ? TreeQuery.extractRegion(compactTree, x, y, width, height)
+            : TreeQuery.extractRegion(rootNode, x, y, width, height);
+    }
+    
+    /**
+     * Merender pohon langsung ke ukuran width x height tanpa render ukuran penuh.
+     * Node yang lebih kecil dari satu piksel output memakai rata-ratanya sendiri
+     */
+    public BufferedImage renderThumbnail(int width, int height) {
+        checkTreeBuilt();
+        return compactTree != null
+            ? ThumbnailRenderer.render(compactTree, width, height)
+            : ThumbnailRenderer.render(rootNode, width, height);
+    }
+    
+    /**
+     * Thumbnail dengan sisi terpanjang maxSide, rasio aspek gambar dipertahankan
+     */
+    public BufferedImage renderThumbnail(int maxSide) {
+        int[] size = ThumbnailRenderer.fitWithin(pixels.getWidth(), pixels.getHeight(), maxSide);
+        return renderThumbnail(size[0], size[1]);
+    }
+    
+    private void checkTreeBuilt() {
+        if (rootNode == null && compactTree == null) {
+            throw new IllegalStateException("Pohon belum dibangun, panggil compress() lebih dulu");
+        }
+    }
+    
+    /**
+     * Mengatur luas blok (width * height) di bawah mana subtree dibangun sekuensial
+     */
+    public void setSequentialCutoff(int blockArea) {
+        this.sequentialCutoff = Math.max(1, blockArea);
+    }
+    
+    /**
+     * Waktu CPU dalam nanodetik. Dalam mode paralel dipakai waktu CPU proses
+     * agar kerja semua worker thread ikut terhitung
+     */
+    private long currentCpuTime() {
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof com.sun.management.OperatingSystemMXBean sunOs && sunOs.getProcessCpuTime() >= 0) {
+            return sunOs.getProcessCpuTime();
+        }
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        return threads.isCurrentThreadCpuTimeSupported() ? threads.getCurrentThreadCpuTime() : 0;
     }
     
     /**
      * Algoritma rekursif divide and conquer untuk membangun quadtree
      */
-    private void buildQuadTree(QuadTreeNode node, BufferedImage image) {
+    private void buildQuadTree(QuadTreeNode node, PixelBuffer pixels, int index) {
+        if (splitIfNeeded(node, pixels, index)) {
+            // Rekursif untuk setiap anak node
+            int child = childIndex(index);
+            buildQuadTree(node.getNorthWest(), pixels, child);
+            buildQuadTree(node.getNorthEast(), pixels, child + 1);
+            buildQuadTree(node.getSouthWest(), pixels, child + 2);
+            buildQuadTree(node.getSouthEast(), pixels, child + 3);
+        }
+        // Jika tidak dibagi, node ini menjadi leaf node dengan warna rata-rata
+    }
+    
+    /**
+     * Menghitung rata-rata dan error sebuah node, lalu membaginya jika perlu.
+     * Mengembalikan true jika node dibagi menjadi empat
+     */
+    private boolean splitIfNeeded(QuadTreeNode node, PixelBuffer pixels, int index) {
         // Hitung nilai rata-rata RGB untuk node ini
-        node.calculateAverage(image);
-        
-        // Hitung error untuk node ini
-        double error = errorMeasurement.calculateError(
-            image, node.getX(), node.getY(), node.getWidth(), node.getHeight()
-        );
+        node.calculateAverage(integralImage);
         
         // Kondisi untuk membagi atau tidak:
-        // 1. Error di atas threshold
-        // 2. Ukuran blok lebih besar dari minimum block size
-        // 3. Ukuran blok setelah dibagi tidak kurang dari minimum block size
-        boolean shouldSplit = error > threshold && 
-                               node.getWidth() > minBlockSize && 
-                               node.getHeight() > minBlockSize && 
-                               node.getWidth()/2 >= minBlockSize && 
-                               node.getHeight()/2 >= minBlockSize;
+        // 1. Ukuran blok lebih besar dari minimum block size
+        // 2. Ukuran blok setelah dibagi tidak kurang dari minimum block size
+        // 3. Error di atas threshold, diperiksa terakhir karena paling mahal
+        boolean shouldSplit = QuadTreeNode.isSplittable(node.getWidth(), node.getHeight(), minBlockSize)
+                && exceedsThreshold(index, node.getX(), node.getY(), node.getWidth(), node.getHeight());
         
         if (shouldSplit) {
             // Bagi node menjadi empat
             node.split();
+        }
+        return shouldSplit;
+    }
+    
+    /**
+     * Apakah error sebuah blok di atas threshold. Nilai error eksak tidak dibutuhkan,
+     * jadi dipakai ErrorMeasurement.exceeds yang bisa berhenti lebih awal.
+     * index adalah posisi blok di MinMaxPyramid, hanya dipakai jika piramida
+     * tersedia (metode MAX_PIXEL_DIFFERENCE)
+     */
+    private boolean exceedsThreshold(int index, int x, int y, int width, int height) {
+        if (minMaxPyramid != null) {
+            stats.countEvaluation(0);
+            return minMaxPyramid.getMaxPixelDifference(index) > threshold;
+        }
+        stats.countEvaluation(scansPixels() ? (long) width * height : 0);
+        return errorMeasurement.exceeds(pixels, x, y, width, height, threshold);
+    }
+    
+    /**
+     * Apakah evaluasi error metode ini membaca piksel blok. VARIANCE dihitung O(1)
+     * dari integral image. Untuk metode lain luas blok dicatat sebagai batas atas,
+     * karena exceeds bisa berhenti sebelum semua baris dibaca
+     */
+    private boolean scansPixels() {
+        return errorMethod != ErrorMeasurementImpl.VARIANCE;
+    }
+    
+    /**
+     * Indeks anak pertama sebuah blok di MinMaxPyramid, atau -1 tanpa piramida
+     */
+    private int childIndex(int index) {
+        return minMaxPyramid != null ? minMaxPyramid.getFirstChild(index) : -1;
+    }
+    
+    /**
+     * Versi buildQuadTree untuk CompactQuadTree, posisi blok dibawa lewat parameter
+     */
+    private void buildCompactTree(int index, int pyramidIndex, int x, int y, int width, int height) {
+        int pixelCount = integralImage.getPixelCount(x, y, width, height);
+        if (pixelCount > 0) {
+            compactTree.setColor(index, 0xFF000000
+                | QuadTreeNode.averageChannel(integralImage.getSumRed(x, y, width, height), pixelCount) << 16
+                | QuadTreeNode.averageChannel(integralImage.getSumGreen(x, y, width, height), pixelCount) << 8
+                | QuadTreeNode.averageChannel(integralImage.getSumBlue(x, y, width, height), pixelCount));
+        }
+        
+        if (!QuadTreeNode.isSplittable(width, height, minBlockSize)
+                || !exceedsThreshold(pyramidIndex, x, y, width, height)) {
+            return;
+        }
+        
+        int child = compactTree.split(index);
+        int pyramidChild = childIndex(pyramidIndex);
+        int westWidth = (width + 1) / 2;
+        int northHeight = (height + 1) / 2;
+        buildCompactTree(child, pyramidChild, x, y, westWidth, northHeight);
+        buildCompactTree(child + 1, pyramidChild + 1, x + westWidth, y, width - westWidth, northHeight);
+        buildCompactTree(child + 2, pyramidChild + 2, x, y + northHeight, westWidth, height - northHeight);
+        buildCompactTree(child + 3, pyramidChild + 3, x + westWidth, y + northHeight,
+                         width - westWidth, height - northHeight);
+    }
+    
+    /**
+     * Membangun quadtree dari piramida statistik tanpa membaca piksel lagi.
+     * Untuk VARIANCE dan MAX_PIXEL_DIFFERENCE error diambil dari piramida,
+     * ENTROPY dari histogram yang digabung bottom-up (EntropyEngine),
+     * metode lain tetap dihitung dari piksel blok
+     */
+    private void buildFromPyramid(QuadTreeNode node, MomentPyramid pyramid, double[] entropy, int index) {
+        node.calculateAverage(
+            pyramid.getSumRed(index), pyramid.getSumGreen(index), pyramid.getSumBlue(index), pyramid.getPixelCount(index)
+        );
+        
+        int firstChild = pyramid.getFirstChild(index);
+        if (firstChild < 0) {
+            return;
+        }
+        
+        boolean exceeds = switch (errorMethod) {
+            case ErrorMeasurementImpl.VARIANCE -> pyramid.getVariance(index) > threshold;
+            case ErrorMeasurementImpl.MAX_PIXEL_DIFFERENCE -> pyramid.getMaxPixelDifference(index) > threshold;
+            case ErrorMeasurementImpl.ENTROPY -> entropy[index] > threshold;
+            default -> {
+                stats.countEvaluation((long) node.getWidth() * node.getHeight());
+                yield errorMeasurement.exceeds(
+                    pixels, node.getX(), node.getY(), node.getWidth(), node.getHeight(), threshold
+                );
+            }
+        };
+        
+        // Piramida hanya punya anak jika ukuran blok memenuhi syarat minimum block size
+        if (exceeds) {
+            node.split();
+            buildFromPyramid(node.getNorthWest(), pyramid, entropy, firstChild);
+            buildFromPyramid(node.getNorthEast(), pyramid, entropy, firstChild + 1);
+            buildFromPyramid(node.getSouthWest(), pyramid, entropy, firstChild + 2);
+            buildFromPyramid(node.getSouthEast(), pyramid, entropy, firstChild + 3);
+        }
+    }
+    
+    /**
+     * Task fork/join untuk membangun subtree secara paralel.
+     * Keputusan split identik dengan buildQuadTree, sehingga pohonnya sama persis
+     */
+    private class BuildTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        
+        private final QuadTreeNode node;
+        
+        private final int index;
+        
+        BuildTask(QuadTreeNode node, int index) {
+            this.node = node;
+            this.index = index;
+        }
+        
+        @Override
+        protected void compute() {
+            if ((long) node.getWidth() * node.getHeight() <= sequentialCutoff) {
+                buildQuadTree(node, pixels, index);
+                return;
+            }
             
-            // Rekursif untuk setiap anak node
-            buildQuadTree(node.getNorthWest(), image);
-            buildQuadTree(node.getNorthEast(), image);
-            buildQuadTree(node.getSouthWest(), image);
-            buildQuadTree(node.getSouthEast(), image);
+            if (splitIfNeeded(node, pixels, index)) {
+                int child = childIndex(index);
+                invokeAll(
+                    new BuildTask(node.getNorthWest(), child),
+                    new BuildTask(node.getNorthEast(), child + 1),
+                    new BuildTask(node.getSouthWest(), child + 2),
+                    new BuildTask(node.getSouthEast(), child + 3)
+                );
+            }
         }
-        // Jika tidak dibagi, node ini menjadi leaf node dengan warna rata-rata
     }
     
     /**
      * Menyimpan gambar hasil kompresi
      */
     public void saveCompressedImage(String outputPath) {
+        CompressionStats.Timer save = stats.start(CompressionStats.SAVE);
         try {
             String extension = outputPath.substring(outputPath.lastIndexOf('.') + 1);
             File outputFile = new File(outputPath);
-            ImageIO.write(compressedImage, extension, outputFile);
+            boolean written = true;
+            if (cacheKey != null) {
+                // Hasil encode diambil dari cache, atau di-encode sekali lalu disimpan ke cache
+                Files.write(outputFile.toPath(), encodeCompressedImage(extension));
+            } else if (extension.equalsIgnoreCase("qtc")) {
+                // Format native: pohon disimpan langsung, tanpa merender ulang ke raster
+                try (OutputStream output = new FileOutputStream(outputFile)) {
+                    writeNativeFormat(output);
+                }
+            } else {
+                ensureRendered();
+                written = ImageIO.write(compressedImage, extension, outputFile);
+            }
+            if (written) {
+                savedFormat = extension.toLowerCase(Locale.ROOT);
+                savedSize = outputFile.length();
+            }
             System.out.println("Compressed image saved to: " + outputPath);
         } catch (IOException e) {
             System.err.println("Error saving compressed image: " + e.getMessage());
+        } finally {
+            save.stop();
+        }
+    }
+    
+    /**
+     * Menulis quadtree dalam format native .qtc (terkompresi deflate)
+     */
+    public void writeNativeFormat(OutputStream output) throws IOException {
+        if (compactTree != null) {
+            QtcWriter.write(compactTree, minBlockSize, output, true);
+        } else {
+            QtcWriter.write(rootNode, minBlockSize, output, true);
+        }
+    }
+    
+    /**
+     * Hasil kompresi yang di-encode ke format (ekstensi gambar, atau qtc untuk
+     * format native). Dengan cache hasil, encode yang sama dipakai ulang
+     */
+    public byte[] encodeCompressedImage(String format) throws IOException {
+        format = format.toLowerCase(Locale.ROOT);
+        if (cacheKey != null) {
+            byte[] cached = resultCache.getOutput(cacheKey, format, getOutputImageType());
+            if (cached != null) {
+                return cached;
+            }
+        }
+        
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        if (format.equals("qtc")) {
+            writeNativeFormat(output);
+        } else {
+            ensureRendered();
+            if (!ImageIO.write(compressedImage, format, output)) {
+                throw new IOException("Tidak ada writer untuk format " + format);
+            }
+        }
+        byte[] encoded = output.toByteArray();
+        if (cacheKey != null) {
+            resultCache.putOutput(cacheKey, format, getOutputImageType(), encoded);
+        }
+        return encoded;
+    }
+    
+    /**
+     * Mengaktifkan perkiraan ukuran hasil di printStatistics sebagai ganti encode PNG
+     */
+    public void setEstimateSize(boolean estimateSize) {
+        this.estimateSize = estimateSize;
+    }
+    
+    /**
+     * Ukuran file hasil kompresi. Jika saveCompressedImage sudah menyimpan gambar
+     * yang sama, ukuran file itu dipakai dalam format apa pun, sehingga sama dengan
+     * yang diukur compressToTarget. Selain itu gambar di-encode sebagai PNG ke
+     * stream penghitung di memori, tanpa file sementara
+     */
+    public long measureCompressedSize() {
+        if (savedFormat != null) {
+            return savedSize;
+        }
+        try {
+            if (cacheKey != null) {
+                return encodeCompressedImage(STATISTICS_FORMAT).length;
+            }
+            ensureRendered();
+            return encodedSize(compressedImage, STATISTICS_FORMAT);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+    
+    /**
+     * Apakah hasil kompresi gambar bertipe seperti image bisa ditulis ke format,
+     * misalnya writer JPEG menolak gambar dengan alpha. Format native qtc selalu bisa
+     */
+    public static boolean canEncode(BufferedImage image, String format) {
+        return format.equalsIgnoreCase("qtc")
+            || ImageIO.getImageWriters(ImageTypeSpecifier.createFromRenderedImage(image), format).hasNext();
+    }
+    
+    /**
+     * Jumlah byte hasil encode gambar dengan ImageWriter yang sama seperti ImageIO.write
+     */
+    public static long encodedSize(BufferedImage image, String format) throws IOException {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(format);
+        if (!writers.hasNext()) {
+            throw new IOException("Tidak ada writer untuk format " + format);
+        }
+        
+        ImageWriter writer = writers.next();
+        CountingOutputStream counter = new CountingOutputStream();
+        try (ImageOutputStream stream = new MemoryCacheImageOutputStream(counter)) {
+            writer.setOutput(stream);
+            writer.write(image);
+        } finally {
+            writer.dispose();
+        }
+        return counter.getCount();
+    }
+    
+    /**
+     * Perkiraan kasar ukuran file .qtc dari pohon saja, tanpa encode: header,
+     * satu bit split per node yang bisa dibagi, dan 3 byte per leaf. Leaf yang
+     * warnanya sama dengan leaf sebelumnya (urutan pre-order) dianggap hampir
+     * gratis karena dipadatkan deflate
+     */
+    public long estimateCompressedSize() {
+        // {bit split, leaf dengan warna berbeda dari leaf sebelumnya, warna leaf terakhir}
+        long[] counts = {0, 0, -1};
+        if (compactTree != null) {
+            countForEstimate(CompactQuadTree.ROOT, pixels.getWidth(), pixels.getHeight(), counts);
+        } else {
+            countForEstimate(rootNode, counts);
+        }
+        return QtcWriter.HEADER_BYTES + (counts[0] + 7) / 8 + 3 * counts[1];
+    }
+    
+    private void countForEstimate(QuadTreeNode node, long[] counts) {
+        if (QuadTreeNode.isSplittable(node.getWidth(), node.getHeight(), minBlockSize)) {
+            counts[0]++;
+        }
+        if (node.isLeaf()) {
+            countLeaf(node.getAverageRGB(), counts);
+            return;
+        }
+        countForEstimate(node.getNorthWest(), counts);
+        countForEstimate(node.getNorthEast(), counts);
+        countForEstimate(node.getSouthWest(), counts);
+        countForEstimate(node.getSouthEast(), counts);
+    }
+    
+    private void countForEstimate(int index, int width, int height, long[] counts) {
+        if (QuadTreeNode.isSplittable(width, height, minBlockSize)) {
+            counts[0]++;
+        }
+        int child = compactTree.getFirstChild(index);
+        if (child == CompactQuadTree.NO_CHILD) {
+            countLeaf(compactTree.getColor(index), counts);
+            return;
+        }
+        int westWidth = (width + 1) / 2;
+        int northHeight = (height + 1) / 2;
+        countForEstimate(child, westWidth, northHeight, counts);
+        countForEstimate(child + 1, width - westWidth, northHeight, counts);
+        countForEstimate(child + 2, westWidth, height - northHeight, counts);
+        countForEstimate(child + 3, width - westWidth, height - northHeight, counts);
+    }
+    
+    private static void countLeaf(int rgb, long[] counts) {
+        long color = rgb & 0xFFFFFF;
+        if (color != counts[2]) {
+            counts[1]++;
+            counts[2] = color;
         }
     }
     
@@ -120,28 +1113,89 @@ public class QuadTreeCompression {
      * Menghitung dan mencetak statistik kompresi
      */
     public void printStatistics() {
+        refreshTreeShape();
         System.out.println("Waktu Eksekusi: " + executionTime + " ms");
+        System.out.println("Waktu CPU: " + cpuTime + " ms" + (parallelism > 1 ? " (" + parallelism + " thread)" : ""));
         System.out.println("Kedalaman Pohon: " + treeDepth);
         System.out.println("Jumlah Nodes: " + nodeCount);
+        if (stopReason != BestFirstBuilder.COMPLETED) {
+            String budget = switch (stopReason) {
+                case BestFirstBuilder.NODE_BUDGET -> "jumlah node";
+                case BestFirstBuilder.MEMORY_BUDGET -> "memori";
+                default -> "waktu";
+            };
+            System.out.println("Pembangunan dihentikan: batas " + budget + " tercapai");
+        }
         
-        // Hitung dan tampilkan persentase kompresi
-        File originalFile = new File(originalImagePath);
-        long originalSize = originalFile.length();
-        long compressedSize = 0; // Ini harus dihitung setelah menyimpan file
+        CompressionStats.Timer size = stats.start(CompressionStats.SIZE);
+        long compressedSize = estimateSize ? estimateCompressedSize() : measureCompressedSize();
+        size.stop();
         
-        File tempOutput = new File("temp_compressed.png");
-        try {
-            ImageIO.write(compressedImage, "png", tempOutput);
-            compressedSize = tempOutput.length();
-            tempOutput.delete();
-        } catch (IOException e) {
-        }
+        // Tanpa path sumber (gambar dari memori) hanya ukuran hasil yang bisa dilaporkan
+        long originalSize = originalImagePath != null ? new File(originalImagePath).length() : -1;
         
-        double compressionPercentage = (1.0 - (double)compressedSize / originalSize) * 100;
+        if (originalSize >= 0) {
+            System.out.println("Ukuran Gambar Asli: " + originalSize + " bytes");
+        }
+        System.out.println("Ukuran Gambar Terkompresi: " + compressedSize + " bytes"
+            + (estimateSize ? " (perkiraan .qtc)" : ""));
+        if (originalSize >= 0) {
+            double compressionPercentage = (1.0 - (double)compressedSize / originalSize) * 100;
+            System.out.println("Persentase Kompresi: " + String.format("%.2f", compressionPercentage) + "%");
+        }
         
-        System.out.println("Ukuran Gambar Asli: " + originalSize + " bytes");
-        System.out.println("Ukuran Gambar Terkompresi: " + compressedSize + " bytes");
-        System.out.println("Persentase Kompresi: " + String.format("%.2f", compressionPercentage) + "%");
+        stats.print();
+    }
+    
+    /**
+     * Instrumentasi per tahap dari kompresor ini
+     */
+    public CompressionStats getStats() {
+        return stats;
+    }
+    
+    /**
+     * Statistik dalam bentuk JSON satu baris: parameter, ukuran gambar, waktu tiap
+     * tahap dalam nanodetik, dan penghitung dari CompressionStats
+     */
+    public String getStatsJson() {
+        refreshTreeShape();
+        StringBuilder json = new StringBuilder("{");
+        json.append("\"source\":\"").append(escapeJson(originalImagePath)).append('"')
+            .append(",\"width\":").append(pixels.getWidth())
+            .append(",\"height\":").append(pixels.getHeight())
+            .append(",\"errorMethod\":").append(errorMethod)
+            .append(",\"threshold\":").append(threshold)
+            .append(",\"minBlockSize\":").append(minBlockSize)
+            .append(",\"threads\":").append(parallelism)
+            .append(",\"executionTimeMs\":").append(executionTime)
+            .append(",\"cpuTimeMs\":").append(cpuTime)
+            .append(",\"treeDepth\":").append(treeDepth)
+            .append(",\"nodes\":").append(nodeCount)
+            .append(',');
+        stats.appendJson(json);
+        return json.append('}').toString();
+    }
+    
+    private static String escapeJson(String value) {
+        if (value == null) {
+            return "";
+        }
+        StringBuilder escaped = new StringBuilder();
+        for (char c : value.toCharArray()) {
+            switch (c) {
+                case '"' -> escaped.append("\\\"");
+                case '\\' -> escaped.append("\\\\");
+                default -> {
+                    if (c < 0x20) {
+                        escaped.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        escaped.append(c);
+                    }
+                }
+            }
+        }
+        return escaped.toString();
     }
     
 
@@ -149,8 +1203,59 @@ public class QuadTreeCompression {
  * Method utama untuk menjalankan program
  */
 public static void main(String[] args) {
+    // Mode batch tanpa prompt: --batch <direktori|daftar.txt> <direktori output> [opsi]
+    if (args.length > 0 && args[0].equals("--batch")) {
+        BatchCompressor.main(Arrays.copyOfRange(args, 1, args.length));
+        return;
+    }
+    
+    // Mode tile untuk gambar yang lebih besar dari heap: --tiled <input> <output> [opsi]
+    if (args.length > 0 && args[0].equals("--tiled")) {
+        TiledCompressor.main(Arrays.copyOfRange(args, 1, args.length));
+        return;
+    }
+    
+    // Mode layanan HTTP yang berjalan terus: --serve [--port P] [opsi]
+    if (args.length > 0 && args[0].equals("--serve")) {
+        CompressionServer.main(Arrays.copyOfRange(args, 1, args.length));
+        return;
+    }
+    
+    // Mode urutan frame (GIF animasi atau direktori frame): --sequence <input> <output> [opsi]
+    if (args.length > 0 && args[0].equals("--sequence")) {
+        SequenceCompressor.main(Arrays.copyOfRange(args, 1, args.length));
+        return;
+    }
+    
     Scanner scanner = new Scanner(System.in);
     
+    // Opsi jumlah thread: --threads N (default 1, sekuensial)
+    int threads = 1;
+    for (int i = 0; i < args.length - 1; i++) {
+        if (args[i].equals("--threads")) {
+            try {
+                threads = Math.max(1, Integer.parseInt(args[i + 1]));
+            } catch (NumberFormatException e) {
+                System.out.println("Warning: jumlah thread tidak valid, memakai 1 thread.");
+            }
+        }
+    }
+    
+    // Opsi cache piksel hasil decode: --pixel-cache [direktori]
+    File pixelCacheDirectory = null;
+    for (int i = 0; i < args.length; i++) {
+        if (args[i].equals("--pixel-cache")) {
+            boolean hasDirectory = i + 1 < args.length && !args[i + 1].startsWith("--");
+            pixelCacheDirectory = hasDirectory ? new File(args[i + 1]) : PixelCache.defaultDirectory();
+        }
+    }
+    
+    // Opsi --estimate-size: statistik ukuran dari perkiraan pohon, tanpa encode PNG
+    boolean estimateSize = Arrays.asList(args).contains("--estimate-size");
+    
+    // Opsi --stats-json: statistik per tahap juga dicetak sebagai JSON satu baris
+    boolean statsJson = Arrays.asList(args).contains("--stats-json");
+    
     System.out.println("Image Compression using Quadtree");
     System.out.println("================================");
     
@@ -233,6 +1338,24 @@ public static void main(String[] args) {
         }
     }
     
+    // Input target persentase kompresi, threshold akan dicari otomatis jika aktif
+    double targetCompression = -1;
+    while (targetCompression < 0 || targetCompression > 1) {
+        try {
+            System.out.print("Masukkan target persentase kompresi (0.0-1.0, 0 untuk menonaktifkan): ");
+            String targetStr = scanner.nextLine().trim().replace(',', '.');
+            targetCompression = Double.parseDouble(targetStr);
+            
+            if (targetCompression < 0 || targetCompression > 1) {
+                System.out.println("Error: Target persentase kompresi harus bernilai antara 0 sampai 1.");
+            }
+        } catch (NumberFormatException e) {
+            System.out.println("Error: Masukkan angka yang valid untuk target persentase kompresi.");
+        } catch (Exception e) {
+            System.out.println("An unexpected error occurred: " + e.getMessage());
+        }
+    }
+    
     // Input output path
     String outputPath = "";
     while (outputPath.isEmpty()) {
@@ -241,8 +1364,8 @@ public static void main(String[] args) {
             outputPath = scanner.nextLine().trim();
             
             // Validasi bahwa outputPath memiliki ekstensi valid
-            if (!outputPath.matches(".*\\.(jpg|jpeg|png|gif|bmp)$")) {
-                System.out.println("Error: Output file harus memiliki extension yang valid(.jpg, .png, etc).");
+            if (!outputPath.matches(".*\\.(jpg|jpeg|png|gif|bmp|qtc)$")) {
+                System.out.println("Error: Output file harus memiliki extension yang valid(.jpg, .png, .qtc, etc).");
                 outputPath = "";
             } else {
                 // Validasi bahwa direktori tujuan ada dan dapat ditulis
@@ -265,17 +1388,38 @@ public static void main(String[] args) {
         System.out.println("Error Method: " + getErrorMethodName(errorMethod));
         System.out.println("Threshold: " + threshold);
         System.out.println("Minimum Block Size: " + minBlockSize);
+        if (targetCompression > 0) {
+            System.out.println("Target Kompresi: " + String.format("%.2f", targetCompression * 100) + "%");
+        }
         System.out.println("Output Image: " + outputPath);
+        System.out.println("Threads: " + threads);
         System.out.println("\nStarting compression...");
         
         // Buat dan jalankan kompresor
-        QuadTreeCompression compressor = new QuadTreeCompression(inputPath, errorMethod, threshold, minBlockSize);
-        compressor.compress();
+        QuadTreeCompression compressor;
+        if (pixelCacheDirectory != null) {
+            PixelBuffer pixels = new PixelCache(pixelCacheDirectory).load(new File(inputPath));
+            compressor = new QuadTreeCompression(pixels, inputPath, errorMethod, threshold, minBlockSize);
+        } else {
+            compressor = new QuadTreeCompression(inputPath, errorMethod, threshold, minBlockSize);
+        }
+        compressor.setParallelism(threads);
+        compressor.setEstimateSize(estimateSize);
+        if (targetCompression > 0) {
+            compressor.setTargetFormat(outputPath.substring(outputPath.lastIndexOf('.') + 1));
+            double chosenThreshold = compressor.compressToTarget(TARGET_COMPRESSION_PERCENTAGE, targetCompression);
+            System.out.println("Threshold hasil pencarian: " + chosenThreshold);
+        } else {
+            compressor.compress();
+        }
         
         // Simpan hasil
         compressor.saveCompressedImage(outputPath);
         
         compressor.printStatistics();
+        if (statsJson) {
+            System.out.println(compressor.getStatsJson());
+        }
         
     } catch (Exception e) {
         System.out.println("Sebuah erorr terjadi saat proses kompresi: " + e.getMessage());
@@ -1,5 +1,4 @@
 import java.awt.Color;
-import java.awt.image.BufferedImage;
 
 public class QuadTreeNode {
     // Posisi dan ukuran blok
@@ -37,35 +36,67 @@ public class QuadTreeNode {
      * Menghitung nilai rata-rata RGB dari semua piksel dalam blok
      */
     // TODO: Cek lagi ini, kadang masih ada bug kalo imagenya ukuran aneh
-    public void calculateAverage(BufferedImage image) {
-        long sumRed = 0, sumGreen = 0, sumBlue = 0;
-        int pixelCount = 0;
+    public void calculateAverage(PixelBuffer pixels) {
+        long[] sums = new long[4];
+        int right = Math.min(x + width, pixels.getWidth());
+        int bottom = Math.min(y + height, pixels.getHeight());
         
-        // Iterasi melalui semua piksel dalam blok ini
-        for (int i = x; i < x + width && i < image.getWidth(); i++) {
-            for (int j = y; j < y + height && j < image.getHeight(); j++) {
-                Color color = new Color(image.getRGB(i, j), true); // true untuk mempertahankan alpha
-                sumRed += color.getRed();
-                sumGreen += color.getGreen();
-                sumBlue += color.getBlue();
-                pixelCount++;
-            }
+        // Iterasi melalui semua piksel dalam blok ini, baris demi baris
+        for (int j = y; j < bottom && right > x; j++) {
+            PixelKernels.INSTANCE.sums(pixels.getRed(), pixels.getGreen(), pixels.getBlue(),
+                j * pixels.getWidth() + x, right - x, sums);
         }
         
+        long pixelCount = (long) Math.max(0, right - x) * Math.max(0, bottom - y);
+        calculateAverage(sums[0], sums[1], sums[2], pixelCount);
+    }
+    
+    /**
+     * Menghitung nilai rata-rata RGB dalam O(1) menggunakan integral image
+     */
+    public void calculateAverage(IntegralImage integralImage) {
+        calculateAverage(
+            integralImage.getSumRed(x, y, width, height),
+            integralImage.getSumGreen(x, y, width, height),
+            integralImage.getSumBlue(x, y, width, height),
+            integralImage.getPixelCount(x, y, width, height)
+        );
+    }
+    
+    /**
+     * Menghitung nilai rata-rata RGB dari jumlah tiap kanal yang sudah diketahui
+     */
+    public void calculateAverage(long sumRed, long sumGreen, long sumBlue, long pixelCount) {
         // Hitung rata-rata dengan pembulatan yang lebih akurat
         if (pixelCount > 0) {
-            // Gunakan Math.round dan casting ke double untuk menghindari masalah pembulatan
-            avgRed = (int) Math.round((double)sumRed / pixelCount);
-            avgGreen = (int) Math.round((double)sumGreen / pixelCount);
-            avgBlue = (int) Math.round((double)sumBlue / pixelCount);
-            
-            // Pastikan nilai berada dalam rentang valid 0-255
-            avgRed = Math.max(0, Math.min(255, avgRed));
-            avgGreen = Math.max(0, Math.min(255, avgGreen));
-            avgBlue = Math.max(0, Math.min(255, avgBlue));
+            avgRed = averageChannel(sumRed, pixelCount);
+            avgGreen = averageChannel(sumGreen, pixelCount);
+            avgBlue = averageChannel(sumBlue, pixelCount);
         }
     }
     
+    /**
+     * Rata-rata satu kanal dari jumlahnya, dibulatkan dan dibatasi ke rentang 0-255
+     */
+    public static int averageChannel(long sum, long pixelCount) {
+        // Gunakan Math.round dan casting ke double untuk menghindari masalah pembulatan
+        int average = (int) Math.round((double) sum / pixelCount);
+        
+        // Pastikan nilai berada dalam rentang valid 0-255
+        return Math.max(0, Math.min(255, average));
+    }
+    
+    /**
+     * Mengecek apakah blok berukuran ini boleh dibagi:
+     * lebih besar dari minimum block size dan setiap anak tidak lebih kecil darinya
+     */
+    public static boolean isSplittable(int width, int height, int minBlockSize) {
+        return width > minBlockSize && 
+               height > minBlockSize && 
+               width / 2 >= minBlockSize && 
+               height / 2 >= minBlockSize;
+    }
+    
     /**
      * Membagi node menjadi empat anak (children)
      */
@@ -87,6 +118,17 @@ public class QuadTreeNode {
         isLeaf = false;
     }
     
+    /**
+     * Membuang keempat anak sehingga node kembali menjadi leaf
+     */
+    public void merge() {
+        northWest = null;
+        northEast = null;
+        southWest = null;
+        southEast = null;
+        isLeaf = true;
+    }
+    
     // Getter dan setter untuk properti
     public boolean isLeaf() {
         return isLeaf;
@@ -112,6 +154,22 @@ public class QuadTreeNode {
         return new Color(avgRed, avgGreen, avgBlue);
     }
     
+    /**
+     * Mengisi warna rata-rata secara langsung, misalnya saat pohon dibaca dari file
+     */
+    public void setAverageRGB(int rgb) {
+        avgRed = (rgb >> 16) & 0xFF;
+        avgGreen = (rgb >> 8) & 0xFF;
+        avgBlue = rgb & 0xFF;
+    }
+    
+    /**
+     * Warna rata-rata dalam format RGB packed, tanpa membuat objek Color
+     */
+    public int getAverageRGB() {
+        return 0xFF000000 | avgRed << 16 | avgGreen << 8 | avgBlue;
+    }
+    
     public QuadTreeNode getNorthWest() {
         return northWest;
     }
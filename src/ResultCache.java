@@ -0,0 +1,408 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache hasil kompresi yang dialamatkan dengan isi, dipasang di depan compress().
+ *
+ * Kunci adalah SHA-256 dari piksel hasil decode ditambah errorMethod, threshold,
+ * dan minBlockSize, sehingga file berbeda dengan piksel sama berbagi satu entri.
+ * Setiap entri menyimpan pohon yang sudah dibangun (CompactQuadTree) dan hasil
+ * encode per format yang pernah diminta. Hasil encode juga dibedakan menurut tipe
+ * gambar hasil (BufferedImage.getType()), karena piksel yang sama dirender ke gambar
+ * indexed, gray, atau RGB menghasilkan byte berbeda; pohonnya tetap dipakai bersama. Total ukuran entri dibatasi anggaran byte
+ * dengan pengusiran LRU. Jika direktori spill diberikan, entri yang diusir ditulis
+ * ke disk dan dimuat kembali saat diminta lagi.
+ *
+ * Pemanggil yang memegang file asli yang belum didekode bisa mencatat alias dari
+ * hash byte file ke kunci piksel dan tipe gambar hasil (lihat sourceKey), sehingga permintaan ulang
+ * dengan file yang sama dijawab tanpa decode sama sekali.
+ *
+ * Hit dan miss dihitung sekali per permintaan: satu per compress(), ditambah
+ * permintaan yang langsung dijawab lewat alias tanpa compress().
+ *
+ * Semua metode synchronized, termasuk I/O spill, karena cache ini ditujukan untuk
+ * satu proses dengan beberapa worker, bukan untuk kontensi tinggi
+ */
+public class ResultCache {
+    private static final int MAGIC = 0x51545243; // "QTRC"
+    private static final int VERSION = 2;
+    
+    // Perkiraan overhead objek per entri dan per hasil encode
+    private static final long ENTRY_OVERHEAD = 128;
+    private static final long OUTPUT_OVERHEAD = 64;
+    
+    // Jumlah maksimum alias hash file ke kunci piksel yang diingat
+    private static final int MAX_ALIASES = 4096;
+    
+    /**
+     * Pohon hasil build dan hasil encode per format (ekstensi huruf kecil) dan
+     * tipe gambar hasil, lihat outputName
+     */
+    private static final class Entry {
+        final CompactQuadTree tree;
+        final Map<String, byte[]> outputs = new HashMap<>();
+        long bytes;
+        
+        Entry(CompactQuadTree tree) {
+            this.tree = tree;
+            this.bytes = ENTRY_OVERHEAD + 8L * tree.getNodeCount();
+        }
+    }
+    
+    /**
+     * Kunci piksel dan tipe gambar hasil untuk satu file sumber
+     */
+    private record Alias(String key, int imageType) {}
+    
+    private final long byteBudget;
+    private final File spillDirectory;
+    
+    // Urutan akses: entri paling lama tidak dipakai ada di depan
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<String, Alias> aliases = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Alias> eldest) {
+            return size() > MAX_ALIASES;
+        }
+    };
+    private long bytes;
+    
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long spillWrites;
+    private long spillReads;
+    
+    /**
+     * @param byteBudget Batas total ukuran entri di memori
+     * @param spillDirectory Direktori untuk entri yang diusir, atau null untuk membuangnya
+     */
+    public ResultCache(long byteBudget, File spillDirectory) {
+        this.byteBudget = Math.max(0, byteBudget);
+        this.spillDirectory = spillDirectory;
+    }
+    
+    /**
+     * Kunci isi untuk piksel dan parameter kompresi
+     */
+    public static String key(PixelBuffer pixels, int errorMethod, double threshold, int minBlockSize) {
+        MessageDigest digest = sha256();
+        digest.update(parameters('P', pixels.getWidth(), pixels.getHeight(), errorMethod, threshold, minBlockSize));
+        digest.update(pixels.getRed());
+        digest.update(pixels.getGreen());
+        digest.update(pixels.getBlue());
+        return hex(digest.digest());
+    }
+    
+    /**
+     * Kunci untuk byte file gambar yang belum didekode, dipakai sebagai alias
+     */
+    public static String sourceKey(byte[] encoded, int errorMethod, double threshold, int minBlockSize) {
+        MessageDigest digest = sha256();
+        digest.update(parameters('S', 0, 0, errorMethod, threshold, minBlockSize));
+        digest.update(encoded);
+        return hex(digest.digest());
+    }
+    
+    private static byte[] parameters(char kind, int width, int height, int errorMethod, double threshold, int minBlockSize) {
+        return ByteBuffer.allocate(26)
+            .putChar(kind).putInt(width).putInt(height).putInt(errorMethod)
+            .putLong(Double.doubleToLongBits(threshold)).putInt(minBlockSize)
+            .array();
+    }
+    
+    /**
+     * Nama hasil encode di dalam entri: format dan tipe gambar hasil
+     */
+    private static String outputName(String format, int imageType) {
+        return format + ":" + imageType;
+    }
+    
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 tidak tersedia", e);
+        }
+    }
+    
+    private static String hex(byte[] hash) {
+        StringBuilder hex = new StringBuilder();
+        for (byte b : hash) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+    
+    /**
+     * Pohon untuk kunci, atau null jika belum pernah disimpan. Pohon yang
+     * dikembalikan dipakai bersama dan tidak boleh diubah. Dipanggil sekali per
+     * compress(), sehingga hit dan miss dihitung sekali per kompresi
+     */
+    public synchronized CompactQuadTree getTree(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            entry = loadSpilled(key);
+        }
+        if (entry != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return entry != null ? entry.tree : null;
+    }
+    
+    /**
+     * Hasil encode untuk kunci, format, dan tipe gambar hasil, atau null jika belum ada.
+     * Tidak dihitung sebagai hit atau miss, karena selalu mengikuti getTree untuk
+     * permintaan yang sama
+     */
+    public synchronized byte[] getOutput(String key, String format, int imageType) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            entry = loadSpilled(key);
+        }
+        return entry != null ? entry.outputs.get(outputName(format, imageType)) : null;
+    }
+    
+    /**
+     * Hasil encode lewat alias hash file, atau null jika file atau formatnya belum dikenal.
+     * Hanya hit yang dihitung, miss dihitung oleh getTree di compress() berikutnya
+     */
+    public synchronized byte[] getOutputBySource(String sourceKey, String format) {
+        Alias alias = aliases.get(sourceKey);
+        byte[] output = alias != null ? getOutput(alias.key(), format, alias.imageType()) : null;
+        if (output != null) {
+            hits++;
+        }
+        return output;
+    }
+    
+    public synchronized void putTree(String key, CompactQuadTree tree) {
+        Entry previous = entries.remove(key);
+        if (previous != null) {
+            bytes -= previous.bytes;
+        }
+        Entry entry = new Entry(tree);
+        entries.put(key, entry);
+        bytes += entry.bytes;
+        evictOverBudget();
+    }
+    
+    /**
+     * Menambahkan hasil encode ke entri yang sudah ada. Diabaikan jika entrinya
+     * sudah diusir dan tidak ada di disk
+     */
+    public synchronized void putOutput(String key, String format, int imageType, byte[] output) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            entry = loadSpilled(key);
+        }
+        if (entry == null || entries.get(key) != entry) {
+            // Tidak ada, atau lebih besar dari anggaran sehingga langsung diusir lagi
+            return;
+        }
+        byte[] previous = entry.outputs.put(outputName(format, imageType), output);
+        long delta = OUTPUT_OVERHEAD + output.length - (previous != null ? OUTPUT_OVERHEAD + previous.length : 0);
+        entry.bytes += delta;
+        bytes += delta;
+        evictOverBudget();
+    }
+    
+    /**
+     * Mencatat bahwa file dengan sourceKey menghasilkan piksel dengan kunci key
+     * yang dirender ke gambar bertipe imageType
+     */
+    public synchronized void putAlias(String sourceKey, String key, int imageType) {
+        aliases.put(sourceKey, new Alias(key, imageType));
+    }
+    
+    private void evictOverBudget() {
+        while (bytes > byteBudget && !entries.isEmpty()) {
+            Map.Entry<String, Entry> eldest = entries.entrySet().iterator().next();
+            entries.remove(eldest.getKey());
+            bytes -= eldest.getValue().bytes;
+            evictions++;
+            spill(eldest.getKey(), eldest.getValue());
+        }
+    }
+    
+    /**
+     * Menulis entri yang diusir ke disk lewat file sementara yang dipindahkan secara atomik
+     */
+    private void spill(String key, Entry entry) {
+        if (spillDirectory == null) {
+            return;
+        }
+        try {
+            Files.createDirectories(spillDirectory.toPath());
+            Path temp = Files.createTempFile(spillDirectory.toPath(), key, ".tmp");
+            try {
+                try (DataOutputStream output = new DataOutputStream(
+                        new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+                    writeEntry(output, entry);
+                }
+                Files.move(temp, spillFile(key).toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                spillWrites++;
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            // Spill hanya optimasi, entri cukup dibuang
+            System.err.println("Warning: gagal menulis cache hasil: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Memuat entri dari disk kembali ke memori, atau null jika tidak ada atau rusak
+     */
+    private Entry loadSpilled(String key) {
+        if (spillDirectory == null) {
+            return null;
+        }
+        File file = spillFile(key);
+        if (!file.isFile()) {
+            return null;
+        }
+        try (DataInputStream input = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(file.toPath()), 1 << 16))) {
+            Entry entry = readEntry(input);
+            if (entry == null) {
+                return null;
+            }
+            spillReads++;
+            entries.put(key, entry);
+            bytes += entry.bytes;
+            evictOverBudget();
+            return entry;
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+    
+    private File spillFile(String key) {
+        return new File(spillDirectory, key + ".qtrc");
+    }
+    
+    /**
+     * Format spill: header, hasil encode per format dan tipe gambar, lalu node pohon dalam
+     * urutan pre-order (warna dan penanda leaf)
+     */
+    private static void writeEntry(DataOutputStream output, Entry entry) throws IOException {
+        output.writeInt(MAGIC);
+        output.writeInt(VERSION);
+        output.writeInt(entry.tree.getWidth());
+        output.writeInt(entry.tree.getHeight());
+        output.writeInt(entry.tree.getNodeCount());
+        
+        output.writeInt(entry.outputs.size());
+        for (Map.Entry<String, byte[]> encoded : entry.outputs.entrySet()) {
+            output.writeUTF(encoded.getKey());
+            output.writeInt(encoded.getValue().length);
+            output.write(encoded.getValue());
+        }
+        
+        writeNode(output, entry.tree, CompactQuadTree.ROOT);
+    }
+    
+    private static void writeNode(DataOutputStream output, CompactQuadTree tree, int index) throws IOException {
+        int child = tree.getFirstChild(index);
+        output.writeInt(tree.getColor(index));
+        output.writeBoolean(child == CompactQuadTree.NO_CHILD);
+        if (child != CompactQuadTree.NO_CHILD) {
+            for (int k = 0; k < 4; k++) {
+                writeNode(output, tree, child + k);
+            }
+        }
+    }
+    
+    private static Entry readEntry(DataInputStream input) throws IOException {
+        if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+            return null;
+        }
+        int width = input.readInt();
+        int height = input.readInt();
+        int nodeCount = input.readInt();
+        
+        Map<String, byte[]> outputs = new HashMap<>();
+        int formats = input.readInt();
+        for (int i = 0; i < formats; i++) {
+            String format = input.readUTF();
+            byte[] encoded = new byte[input.readInt()];
+            input.readFully(encoded);
+            outputs.put(format, encoded);
+        }
+        
+        CompactQuadTree tree = new CompactQuadTree(width, height);
+        readNode(input, tree, CompactQuadTree.ROOT);
+        tree.trim();
+        if (tree.getNodeCount() != nodeCount) {
+            return null;
+        }
+        
+        Entry entry = new Entry(tree);
+        for (Map.Entry<String, byte[]> encoded : outputs.entrySet()) {
+            entry.outputs.put(encoded.getKey(), encoded.getValue());
+            entry.bytes += OUTPUT_OVERHEAD + encoded.getValue().length;
+        }
+        return entry;
+    }
+    
+    private static void readNode(DataInputStream input, CompactQuadTree tree, int index) throws IOException {
+        tree.setColor(index, input.readInt());
+        if (input.readBoolean()) {
+            return;
+        }
+        int child = tree.split(index);
+        for (int k = 0; k < 4; k++) {
+            readNode(input, tree, child + k);
+        }
+    }
+    
+    public synchronized long getHits() {
+        return hits;
+    }
+    
+    public synchronized long getMisses() {
+        return misses;
+    }
+    
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+    
+    public synchronized long getBytes() {
+        return bytes;
+    }
+    
+    public synchronized int getEntryCount() {
+        return entries.size();
+    }
+    
+    /**
+     * Penghitung cache dalam JSON satu baris
+     */
+    public synchronized String toJson() {
+        return "{\"entries\":" + entries.size()
+            + ",\"bytes\":" + bytes
+            + ",\"byteBudget\":" + byteBudget
+            + ",\"hits\":" + hits
+            + ",\"misses\":" + misses
+            + ",\"evictions\":" + evictions
+            + ",\"spillWrites\":" + spillWrites
+            + ",\"spillReads\":" + spillReads + "}";
+    }
+}
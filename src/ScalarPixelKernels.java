@@ -0,0 +1,65 @@
+/**
+ * Implementasi PixelKernels dengan loop biasa, dipakai jika Vector API tidak tersedia
+ */
+public class ScalarPixelKernels implements PixelKernels {
+    @Override
+    public void sums(byte[] red, byte[] green, byte[] blue, int offset, int length, long[] sums) {
+        long sumRed = 0, sumGreen = 0, sumBlue = 0, sumSquares = 0;
+        for (int i = offset; i < offset + length; i++) {
+            int r = red[i] & 0xFF;
+            int g = green[i] & 0xFF;
+            int b = blue[i] & 0xFF;
+            
+            sumRed += r;
+            sumGreen += g;
+            sumBlue += b;
+            sumSquares += r * r + g * g + b * b;
+        }
+        sums[0] += sumRed;
+        sums[1] += sumGreen;
+        sums[2] += sumBlue;
+        sums[3] += sumSquares;
+    }
+    
+    @Override
+    public long absoluteDeviation(byte[] red, byte[] green, byte[] blue, int offset, int length, long[] sums) {
+        long sumRed = sums[0], sumGreen = sums[1], sumBlue = sums[2], n = sums[3];
+        long deviation = 0;
+        for (int i = offset; i < offset + length; i++) {
+            deviation += Math.abs(n * (red[i] & 0xFF) - sumRed)
+                       + Math.abs(n * (green[i] & 0xFF) - sumGreen)
+                       + Math.abs(n * (blue[i] & 0xFF) - sumBlue);
+        }
+        return deviation;
+    }
+    
+    @Override
+    public void minMax(byte[] red, byte[] green, byte[] blue, int offset, int length, int[] range) {
+        int minRed = range[0], minGreen = range[1], minBlue = range[2];
+        int maxRed = range[3], maxGreen = range[4], maxBlue = range[5];
+        for (int i = offset; i < offset + length; i++) {
+            int r = red[i] & 0xFF;
+            int g = green[i] & 0xFF;
+            int b = blue[i] & 0xFF;
+            
+            minRed = Math.min(minRed, r);
+            minGreen = Math.min(minGreen, g);
+            minBlue = Math.min(minBlue, b);
+            
+            maxRed = Math.max(maxRed, r);
+            maxGreen = Math.max(maxGreen, g);
+            maxBlue = Math.max(maxBlue, b);
+        }
+        range[0] = minRed;
+        range[1] = minGreen;
+        range[2] = minBlue;
+        range[3] = maxRed;
+        range[4] = maxGreen;
+        range[5] = maxBlue;
+    }
+    
+    @Override
+    public String name() {
+        return "scalar";
+    }
+}
@@ -0,0 +1,486 @@
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import org.w3c.dom.Node;
+
+/**
+ * Mode urutan frame untuk GIF animasi, TIFF multi-halaman, atau direktori berisi
+ * frame, misalnya rekaman layar yang antar frame-nya hanya berubah sedikit.
+ *
+ * Frame pertama dibangun penuh lewat IncrementalTreeUpdater seperti BUILD_BOTTOM_UP. Untuk
+ * frame berikutnya, DirtyMask menandai sel yang berubah dari frame sebelumnya,
+ * piramida hanya diperbarui di blok yang kotor, dan pohon hanya dievaluasi ulang
+ * di subtree yang bloknya kotor. Subtree yang bersih dipakai ulang apa adanya,
+ * karena keputusan split sebuah blok hanya bergantung pada piksel blok itu.
+ * Gambar hasil juga dipertahankan antar frame, hanya leaf yang berubah yang
+ * digambar ulang. Hasil setiap frame identik dengan membangun frame itu dari awal.
+ *
+ * Untuk VARIANCE dan MAX_PIXEL_DIFFERENCE keputusan split diambil dari piramida,
+ * sehingga biaya per frame sebanding dengan luas yang berubah ditambah satu kali
+ * perbandingan frame. MAD dan ENTROPY tetap memindai piksel blok kotor (dengan
+ * early exit), sehingga blok kotor yang besar di dekat root masih mahal
+ */
+public class SequenceCompressor {
+    // Delay bawaan antar frame dalam 1/100 detik untuk input tanpa informasi waktu
+    public static final int DEFAULT_DELAY = 10;
+    
+    private final int errorMethod;
+    private final double threshold;
+    private final int minBlockSize;
+    private int cellSize = DirtyMask.DEFAULT_CELL_SIZE;
+    private boolean reuse = true;
+    
+    // Keadaan dari frame sebelumnya
+    private PixelBuffer previous;
+    private IncrementalTreeUpdater updater;
+    private QuadTreeNode root;
+    private BufferedImage output;
+    private BlockRasterizer rasterizer;
+    private double dirtyFraction;
+    
+    public SequenceCompressor(int errorMethod, double threshold, int minBlockSize) {
+        this.errorMethod = errorMethod;
+        this.threshold = threshold;
+        this.minBlockSize = minBlockSize;
+    }
+    
+    /**
+     * Ukuran sel DirtyMask dalam piksel
+     */
+    public void setCellSize(int cellSize) {
+        this.cellSize = Math.max(1, cellSize);
+    }
+    
+    /**
+     * Jika false, setiap frame dibangun dari awal (untuk perbandingan)
+     */
+    public void setReuse(boolean reuse) {
+        this.reuse = reuse;
+    }
+    
+    /**
+     * Mengompresi satu frame dan mengembalikan gambar hasilnya. Gambar yang sama
+     * dipakai ulang dan ditimpa pada frame berikutnya, salin jika perlu disimpan
+     */
+    public BufferedImage compressFrame(PixelBuffer frame) {
+        boolean sameSize = previous != null
+            && frame.getWidth() == previous.getWidth() && frame.getHeight() == previous.getHeight();
+        if (!reuse || !sameSize) {
+            output = new BufferedImage(frame.getWidth(), frame.getHeight(), BufferedImage.TYPE_INT_RGB);
+            rasterizer = new BlockRasterizer(output);
+            updater = new IncrementalTreeUpdater(frame, errorMethod, threshold, minBlockSize);
+            root = updater.build(frame, rasterizer);
+            dirtyFraction = 1.0;
+        } else {
+            DirtyMask mask = DirtyMask.diff(previous, frame, cellSize);
+            dirtyFraction = mask.getDirtyFraction();
+            updater.update(root, frame, mask, rasterizer);
+        }
+        
+        previous = frame;
+        return output;
+    }
+    
+    /**
+     * Pohon frame terakhir. Pohon ini diubah di tempat oleh frame berikutnya
+     */
+    public QuadTreeNode getRootNode() {
+        return root;
+    }
+    
+    public long getEvaluatedNodes() {
+        return updater.getEvaluatedNodes();
+    }
+    
+    public long getReusedSubtrees() {
+        return updater.getReusedSubtrees();
+    }
+    
+    public long getPaintedLeaves() {
+        return updater.getPaintedLeaves();
+    }
+    
+    public double getDirtyFraction() {
+        return dirtyFraction;
+    }
+    
+    /**
+     * Sumber frame yang dibaca satu per satu, agar urutan panjang tidak perlu
+     * dimuat seluruhnya ke memori
+     */
+    public interface FrameSource extends AutoCloseable {
+        /**
+         * Frame berikutnya sebagai gambar penuh, atau null jika habis
+         */
+        BufferedImage next() throws IOException;
+        
+        /**
+         * Delay frame terakhir yang dikembalikan next(), dalam 1/100 detik
+         */
+        int getDelay();
+        
+        @Override
+        void close() throws IOException;
+    }
+    
+    /**
+     * Membuka GIF animasi atau file multi-frame lain lewat ImageReader, atau
+     * direktori berisi frame yang diurutkan menurut nama file
+     */
+    public static FrameSource open(File input) throws IOException {
+        if (input.isDirectory()) {
+            return new DirectorySource(BatchCompressor.collectInputs(input));
+        }
+        return new ReaderSource(input);
+    }
+    
+    private static final class DirectorySource implements FrameSource {
+        private final List<File> files;
+        private int next;
+        
+        DirectorySource(List<File> files) {
+            this.files = files;
+        }
+        
+        @Override
+        public BufferedImage next() throws IOException {
+            if (next >= files.size()) {
+                return null;
+            }
+            File file = files.get(next++);
+            BufferedImage image = ImageIO.read(file);
+            if (image == null) {
+                throw new IOException("Format gambar tidak didukung: " + file);
+            }
+            return image;
+        }
+        
+        @Override
+        public int getDelay() {
+            return DEFAULT_DELAY;
+        }
+        
+        @Override
+        public void close() {
+        }
+    }
+    
+    /**
+     * Membaca frame dengan ImageReader. Frame GIF bisa berupa potongan kecil dengan
+     * offset dan aturan disposal, sehingga digabung ke kanvas seukuran layar logis
+     */
+    private static final class ReaderSource implements FrameSource {
+        private static final String GIF_IMAGE_FORMAT = "javax_imageio_gif_image_1.0";
+        private static final String GIF_STREAM_FORMAT = "javax_imageio_gif_stream_1.0";
+        
+        private final ImageInputStream stream;
+        private final ImageReader reader;
+        private BufferedImage canvas;
+        private int index;
+        private int delay = DEFAULT_DELAY;
+        
+        // Disposal frame sebelumnya yang diterapkan sebelum frame berikutnya digambar
+        private String pendingDisposal = "none";
+        private int disposalX, disposalY, disposalWidth, disposalHeight;
+        private BufferedImage restoreCopy;
+        
+        ReaderSource(File input) throws IOException {
+            stream = ImageIO.createImageInputStream(input);
+            if (stream == null) {
+                throw new IOException("File tidak bisa dibuka: " + input);
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(stream);
+            if (!readers.hasNext()) {
+                stream.close();
+                throw new IOException("Format gambar tidak didukung: " + input);
+            }
+            reader = readers.next();
+            reader.setInput(stream, false);
+        }
+        
+        @Override
+        public BufferedImage next() throws IOException {
+            BufferedImage frame;
+            try {
+                frame = reader.read(index);
+            } catch (IndexOutOfBoundsException e) {
+                return null;
+            }
+            IIOMetadata metadata = reader.getImageMetadata(index);
+            index++;
+            
+            if (canvas == null) {
+                int[] screen = logicalScreenSize();
+                canvas = new BufferedImage(
+                    Math.max(screen[0], frame.getWidth()), Math.max(screen[1], frame.getHeight()), BufferedImage.TYPE_INT_RGB
+                );
+            }
+            
+            // Posisi, delay, dan disposal dari metadata GIF, frame format lain digambar di (0, 0)
+            int left = 0, top = 0;
+            String disposal = "none";
+            IIOMetadataNode tree = gifTree(metadata);
+            if (tree != null) {
+                IIOMetadataNode descriptor = child(tree, "ImageDescriptor");
+                if (descriptor != null) {
+                    left = Integer.parseInt(descriptor.getAttribute("imageLeftPosition"));
+                    top = Integer.parseInt(descriptor.getAttribute("imageTopPosition"));
+                }
+                IIOMetadataNode control = child(tree, "GraphicControlExtension");
+                if (control != null) {
+                    disposal = control.getAttribute("disposalMethod");
+                    delay = Integer.parseInt(control.getAttribute("delayTime"));
+                }
+            }
+            
+            applyDisposal();
+            if (disposal.equals("restoreToPrevious")) {
+                restoreCopy = copy(canvas);
+            }
+            Graphics2D graphics = canvas.createGraphics();
+            graphics.drawImage(frame, left, top, null);
+            graphics.dispose();
+            
+            pendingDisposal = disposal;
+            disposalX = left;
+            disposalY = top;
+            disposalWidth = frame.getWidth();
+            disposalHeight = frame.getHeight();
+            return canvas;
+        }
+        
+        private void applyDisposal() {
+            if (pendingDisposal.equals("restoreToBackgroundColor")) {
+                Graphics2D graphics = canvas.createGraphics();
+                graphics.clearRect(disposalX, disposalY, disposalWidth, disposalHeight);
+                graphics.dispose();
+            } else if (pendingDisposal.equals("restoreToPrevious") && restoreCopy != null) {
+                canvas = restoreCopy;
+                restoreCopy = null;
+            }
+        }
+        
+        private int[] logicalScreenSize() throws IOException {
+            IIOMetadata metadata = reader.getStreamMetadata();
+            if (metadata != null && GIF_STREAM_FORMAT.equals(metadata.getNativeMetadataFormatName())) {
+                IIOMetadataNode screen = child(
+                    (IIOMetadataNode) metadata.getAsTree(GIF_STREAM_FORMAT), "LogicalScreenDescriptor"
+                );
+                if (screen != null) {
+                    return new int[] {
+                        Integer.parseInt(screen.getAttribute("logicalScreenWidth")),
+                        Integer.parseInt(screen.getAttribute("logicalScreenHeight"))
+                    };
+                }
+            }
+            return new int[] {0, 0};
+        }
+        
+        private static IIOMetadataNode gifTree(IIOMetadata metadata) {
+            if (metadata == null || !GIF_IMAGE_FORMAT.equals(metadata.getNativeMetadataFormatName())) {
+                return null;
+            }
+            return (IIOMetadataNode) metadata.getAsTree(GIF_IMAGE_FORMAT);
+        }
+        
+        private static BufferedImage copy(BufferedImage image) {
+            BufferedImage copy = new BufferedImage(image.getWidth(), image.getHeight(), image.getType());
+            Graphics2D graphics = copy.createGraphics();
+            graphics.drawImage(image, 0, 0, null);
+            graphics.dispose();
+            return copy;
+        }
+        
+        @Override
+        public int getDelay() {
+            return delay;
+        }
+        
+        @Override
+        public void close() throws IOException {
+            reader.dispose();
+            stream.close();
+        }
+    }
+    
+    private static IIOMetadataNode child(IIOMetadataNode parent, String name) {
+        for (Node node = parent.getFirstChild(); node != null; node = node.getNextSibling()) {
+            if (node.getNodeName().equals(name)) {
+                return (IIOMetadataNode) node;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Tujuan frame hasil: GIF animasi, atau direktori berisi satu file per frame
+     */
+    private interface FrameSink extends AutoCloseable {
+        void write(BufferedImage frame, int delay) throws IOException;
+        
+        @Override
+        void close() throws IOException;
+    }
+    
+    private static FrameSink createSink(File output, String frameFormat) throws IOException {
+        if (output.getName().toLowerCase(Locale.ROOT).endsWith(".gif")) {
+            return new GifSink(output);
+        }
+        if (!output.isDirectory() && !output.mkdirs()) {
+            throw new IOException("Direktori output tidak bisa dibuat: " + output);
+        }
+        return new FrameSink() {
+            private int index;
+            
+            @Override
+            public void write(BufferedImage frame, int delay) throws IOException {
+                File file = new File(output, String.format("frame_%05d.%s", index++, frameFormat));
+                if (!ImageIO.write(frame, frameFormat, file)) {
+                    throw new IOException("Tidak ada writer untuk format " + frameFormat);
+                }
+            }
+            
+            @Override
+            public void close() {
+            }
+        };
+    }
+    
+    /**
+     * GIF animasi yang berulang terus, delay tiap frame diambil dari input
+     */
+    private static final class GifSink implements FrameSink {
+        private final ImageOutputStream stream;
+        private final ImageWriter writer;
+        private boolean first = true;
+        
+        GifSink(File output) throws IOException {
+            writer = ImageIO.getImageWritersByFormatName("gif").next();
+            output.delete();
+            stream = ImageIO.createImageOutputStream(output);
+            writer.setOutput(stream);
+            writer.prepareWriteSequence(null);
+        }
+        
+        @Override
+        public void write(BufferedImage frame, int delay) throws IOException {
+            IIOMetadata metadata = writer.getDefaultImageMetadata(ImageTypeSpecifier.createFromRenderedImage(frame), null);
+            String format = metadata.getNativeMetadataFormatName();
+            IIOMetadataNode tree = (IIOMetadataNode) metadata.getAsTree(format);
+            
+            IIOMetadataNode control = child(tree, "GraphicControlExtension");
+            if (control == null) {
+                control = new IIOMetadataNode("GraphicControlExtension");
+                tree.appendChild(control);
+            }
+            control.setAttribute("disposalMethod", "none");
+            control.setAttribute("userInputFlag", "FALSE");
+            control.setAttribute("transparentColorFlag", "FALSE");
+            control.setAttribute("transparentColorIndex", "0");
+            control.setAttribute("delayTime", Integer.toString(delay));
+            
+            if (first) {
+                // Ekstensi NETSCAPE2.0 dengan jumlah ulang 0 (tanpa henti)
+                IIOMetadataNode extensions = new IIOMetadataNode("ApplicationExtensions");
+                IIOMetadataNode loop = new IIOMetadataNode("ApplicationExtension");
+                loop.setAttribute("applicationID", "NETSCAPE");
+                loop.setAttribute("authenticationCode", "2.0");
+                loop.setUserObject(new byte[] {1, 0, 0});
+                extensions.appendChild(loop);
+                tree.appendChild(extensions);
+                first = false;
+            }
+            metadata.setFromTree(format, tree);
+            writer.writeToSequence(new IIOImage(frame, null, metadata), null);
+        }
+        
+        @Override
+        public void close() throws IOException {
+            writer.endWriteSequence();
+            writer.dispose();
+            stream.close();
+        }
+    }
+    
+    /**
+     * java SequenceCompressor <input.gif|direktori> <output.gif|direktori> [opsi]
+     */
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.out.println("Penggunaan: java SequenceCompressor <input.gif|direktori frame> <output.gif|direktori>");
+            System.out.println("  [--method 1-4] [--threshold T] [--min-block N] [--format png|bmp|...]");
+            System.out.println("  [--cell N] [--no-reuse]");
+            return;
+        }
+        
+        int method = ErrorMeasurementImpl.VARIANCE;
+        double threshold = 10;
+        int minBlockSize = 4;
+        int cell = DirtyMask.DEFAULT_CELL_SIZE;
+        String frameFormat = "png";
+        boolean reuse = true;
+        try {
+            for (int i = 2; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--method" -> method = Integer.parseInt(args[++i]);
+                    case "--threshold" -> threshold = Double.parseDouble(args[++i]);
+                    case "--min-block" -> minBlockSize = Integer.parseInt(args[++i]);
+                    case "--cell" -> cell = Integer.parseInt(args[++i]);
+                    case "--format" -> frameFormat = args[++i].toLowerCase(Locale.ROOT);
+                    case "--no-reuse" -> reuse = false;
+                    default -> System.out.println("Warning: opsi tidak dikenal diabaikan: " + args[i]);
+                }
+            }
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            System.err.println("Error: nilai opsi tidak valid: " + e.getMessage());
+            return;
+        }
+        if (method < 1 || method > 4 || threshold < 0 || minBlockSize < 1) {
+            System.err.println("Error: parameter tidak valid");
+            return;
+        }
+        
+        SequenceCompressor compressor = new SequenceCompressor(method, threshold, minBlockSize);
+        compressor.setCellSize(cell);
+        compressor.setReuse(reuse);
+        
+        List<Long> frameTimes = new ArrayList<>();
+        try (FrameSource source = open(new File(args[0]));
+             FrameSink sink = createSink(new File(args[1]), frameFormat)) {
+            BufferedImage image;
+            while ((image = source.next()) != null) {
+                long startTime = System.nanoTime();
+                BufferedImage result = compressor.compressFrame(PixelBuffer.fromImage(image));
+                long elapsed = System.nanoTime() - startTime;
+                frameTimes.add(elapsed);
+                
+                System.out.println(String.format(Locale.ROOT,
+                    "Frame %d: %.1f%% berubah, %d node dievaluasi, %d subtree dipakai ulang, %d leaf digambar, %.3f ms",
+                    frameTimes.size() - 1, compressor.getDirtyFraction() * 100, compressor.getEvaluatedNodes(),
+                    compressor.getReusedSubtrees(), compressor.getPaintedLeaves(), elapsed / 1e6));
+                sink.write(result, source.getDelay());
+            }
+        } catch (IOException e) {
+            System.err.println("Error memproses urutan frame: " + e.getMessage());
+            return;
+        }
+        
+        long total = frameTimes.stream().mapToLong(Long::longValue).sum();
+        System.out.println(String.format(Locale.ROOT, "%d frame, waktu kompresi total %.3f ms",
+            frameTimes.size(), total / 1e6));
+    }
+}
@@ -0,0 +1,173 @@
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+
+/**
+ * Merender quadtree langsung ke resolusi sembarang, misalnya thumbnail, tanpa
+ * merender gambar ukuran penuh lalu memperkecilnya.
+ *
+ * Setiap blok diproyeksikan ke koordinat output dan warnanya ditambahkan ke piksel
+ * output yang tertutup, dibobot luas bagian yang tertutup (filter kotak). Node yang
+ * proyeksinya sudah lebih kecil dari satu piksel output tidak diturunkan lagi,
+ * warnanya diambil dari rata-rata node itu sendiri, yang sudah sama dengan
+ * rata-rata anak-anaknya dibobot luas. Jumlah node yang dikunjungi sebanding dengan
+ * jumlah piksel output, bukan dengan ukuran gambar atau jumlah leaf
+ */
+public class ThumbnailRenderer {
+    // Node selebar ini (dalam piksel output) atau lebih kecil tidak diturunkan walaupun melintasi batas piksel
+    private static final double STRADDLE_LIMIT = 0.5;
+    
+    private final int width;
+    private final int height;
+    private final double scaleX;
+    private final double scaleY;
+    
+    // Jumlah warna dan bobot per piksel output
+    private final double[] red;
+    private final double[] green;
+    private final double[] blue;
+    private final double[] weight;
+    
+    private ThumbnailRenderer(int sourceWidth, int sourceHeight, int width, int height) {
+        if (width < 1 || height < 1) {
+            throw new IllegalArgumentException("Ukuran output minimal 1x1");
+        }
+        this.width = width;
+        this.height = height;
+        this.scaleX = (double) width / sourceWidth;
+        this.scaleY = (double) height / sourceHeight;
+        int pixelCount = width * height;
+        this.red = new double[pixelCount];
+        this.green = new double[pixelCount];
+        this.blue = new double[pixelCount];
+        this.weight = new double[pixelCount];
+    }
+    
+    /**
+     * Merender pohon QuadTreeNode ke gambar berukuran width x height
+     */
+    public static BufferedImage render(QuadTreeNode root, int width, int height) {
+        ThumbnailRenderer renderer = new ThumbnailRenderer(root.getWidth(), root.getHeight(), width, height);
+        renderer.render(root);
+        return renderer.toImage();
+    }
+    
+    /**
+     * Merender pohon ringkas ke gambar berukuran width x height
+     */
+    public static BufferedImage render(CompactQuadTree tree, int width, int height) {
+        ThumbnailRenderer renderer = new ThumbnailRenderer(tree.getWidth(), tree.getHeight(), width, height);
+        renderer.render(tree, CompactQuadTree.ROOT, 0, 0, tree.getWidth(), tree.getHeight());
+        return renderer.toImage();
+    }
+    
+    /**
+     * Ukuran output dengan sisi terpanjang maxSide dan rasio aspek gambar asal
+     *
+     * @return {lebar, tinggi}, masing-masing minimal 1
+     */
+    public static int[] fitWithin(int sourceWidth, int sourceHeight, int maxSide) {
+        double scale = (double) maxSide / Math.max(sourceWidth, sourceHeight);
+        return new int[] {
+            Math.max(1, (int) Math.round(sourceWidth * scale)),
+            Math.max(1, (int) Math.round(sourceHeight * scale))
+        };
+    }
+    
+    private void render(QuadTreeNode node) {
+        double left = node.getX() * scaleX;
+        double top = node.getY() * scaleY;
+        double right = (node.getX() + node.getWidth()) * scaleX;
+        double bottom = (node.getY() + node.getHeight()) * scaleY;
+        if (node.isLeaf() || isSmallEnough(left, top, right, bottom)) {
+            accumulate(left, top, right, bottom, node.getAverageRGB());
+            return;
+        }
+        
+        render(node.getNorthWest());
+        render(node.getNorthEast());
+        render(node.getSouthWest());
+        render(node.getSouthEast());
+    }
+    
+    private void render(CompactQuadTree tree, int index, int x, int y, int blockWidth, int blockHeight) {
+        double left = x * scaleX;
+        double top = y * scaleY;
+        double right = (x + blockWidth) * scaleX;
+        double bottom = (y + blockHeight) * scaleY;
+        int child = tree.getFirstChild(index);
+        if (child == CompactQuadTree.NO_CHILD || isSmallEnough(left, top, right, bottom)) {
+            accumulate(left, top, right, bottom, tree.getColor(index));
+            return;
+        }
+        
+        // Ukuran anak sama dengan QuadTreeNode.split
+        int westWidth = (blockWidth + 1) / 2;
+        int northHeight = (blockHeight + 1) / 2;
+        render(tree, child, x, y, westWidth, northHeight);
+        render(tree, child + 1, x + westWidth, y, blockWidth - westWidth, northHeight);
+        render(tree, child + 2, x, y + northHeight, westWidth, blockHeight - northHeight);
+        render(tree, child + 3, x + westWidth, y + northHeight, blockWidth - westWidth, blockHeight - northHeight);
+    }
+    
+    /**
+     * Apakah node cukup kecil untuk diwakili rata-ratanya sendiri: seluruhnya berada
+     * di dalam satu piksel output, atau tidak lebih dari STRADDLE_LIMIT di kedua sisi.
+     * Node sebesar satu piksel yang melintasi batas piksel tetap diturunkan, karena
+     * rata-ratanya akan tersebar rata ke dua piksel yang isinya bisa sangat berbeda
+     */
+    private static boolean isSmallEnough(double left, double top, double right, double bottom) {
+        if (right - left > 1 || bottom - top > 1) {
+            return false;
+        }
+        if (right - left <= STRADDLE_LIMIT && bottom - top <= STRADDLE_LIMIT) {
+            return true;
+        }
+        return Math.ceil(right) - (int) left <= 1 && Math.ceil(bottom) - (int) top <= 1;
+    }
+    
+    /**
+     * Menambahkan satu warna ke semua piksel output yang tertutup persegi panjang
+     * [left, right) x [top, bottom), dibobot luas bagian yang tertutup
+     */
+    private void accumulate(double left, double top, double right, double bottom, int rgb) {
+        int r = (rgb >> 16) & 0xFF;
+        int g = (rgb >> 8) & 0xFF;
+        int b = rgb & 0xFF;
+        int firstColumn = (int) left;
+        int lastColumn = Math.min((int) Math.ceil(right), width);
+        int firstRow = (int) top;
+        int lastRow = Math.min((int) Math.ceil(bottom), height);
+        
+        for (int row = firstRow; row < lastRow; row++) {
+            double coverY = Math.min(bottom, row + 1) - Math.max(top, row);
+            if (coverY <= 0) {
+                continue;
+            }
+            int offset = row * width;
+            for (int column = firstColumn; column < lastColumn; column++) {
+                double cover = (Math.min(right, column + 1) - Math.max(left, column)) * coverY;
+                if (cover <= 0) {
+                    continue;
+                }
+                red[offset + column] += cover * r;
+                green[offset + column] += cover * g;
+                blue[offset + column] += cover * b;
+                weight[offset + column] += cover;
+            }
+        }
+    }
+    
+    private BufferedImage toImage() {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        int[] data = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        for (int i = 0; i < data.length; i++) {
+            double total = weight[i];
+            if (total > 0) {
+                data[i] = (int) Math.round(red[i] / total) << 16
+                    | (int) Math.round(green[i] / total) << 8
+                    | (int) Math.round(blue[i] / total);
+            }
+        }
+        return image;
+    }
+}
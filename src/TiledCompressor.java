@@ -0,0 +1,395 @@
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.plugins.tiff.BaselineTIFFTagSet;
+import javax.imageio.plugins.tiff.TIFFDirectory;
+import javax.imageio.plugins.tiff.TIFFField;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+
+/**
+ * Kompresi per tile untuk gambar yang terlalu besar untuk dimuat utuh di memori.
+ *
+ * Level atas quadtree selalu dibagi (node struktural) sampai blok tidak lebih besar
+ * dari ukuran tile, sehingga setiap tile persis sebuah node quadtree. Tile dengan
+ * tepi atas yang sama didekode sekaligus sebagai satu pita dengan
+ * ImageReadParam.setSourceRegion, sehingga gambar dibaca sekali per baris tile, bukan
+ * sekali per tile. Subtree setiap tile dibangun dengan aturan split yang sama seperti
+ * mode biasa. Piksel yang dipegang sebanding dengan satu baris tile, bukan ukuran gambar.
+ *
+ * Output .qtc menyimpan subtree yang sudah jadi sebagai CompactQuadTree, lalu menulis
+ * semuanya dalam urutan pre-order di bawah node struktural setelah pita terakhir.
+ * Output TIFF ditulis per strip di antara tepi tile dengan replacePixels. Format lain
+ * (PNG, JPEG, BMP) tidak bisa ditulis sebagian dan ditolak
+ */
+public class TiledCompressor {
+    public static final int DEFAULT_TILE_SIZE = 1024;
+    
+    private final File input;
+    private final int errorMethod;
+    private final double threshold;
+    private final int minBlockSize;
+    private int tileSize = DEFAULT_TILE_SIZE;
+    
+    private ImageReader reader;
+    private int width;
+    private int height;
+    
+    // Statistik hasil
+    private long nodeCount;
+    private int treeDepth;
+    private int tileCount;
+    
+    /**
+     * Geometri satu tile beserta kedalaman node-nya di quadtree
+     */
+    private record Tile(int x, int y, int width, int height, int depth) {}
+    
+    /**
+     * Tile yang sudah dirender tapi lebih tinggi dari strip TIFF saat ini
+     */
+    private record Rendered(Tile tile, BufferedImage image) {}
+    
+    public TiledCompressor(File input, int errorMethod, double threshold, int minBlockSize) {
+        this.input = input;
+        this.errorMethod = errorMethod;
+        this.threshold = threshold;
+        this.minBlockSize = minBlockSize;
+    }
+    
+    /**
+     * Batas lebar dan tinggi tile dalam piksel
+     */
+    public void setTileSize(int tileSize) {
+        this.tileSize = Math.max(minBlockSize, tileSize);
+    }
+    
+    /**
+     * Mengompresi gambar ke file output. Format ditentukan dari ekstensi, hanya qtc
+     * dan tif/tiff yang bisa ditulis bertahap
+     */
+    public void compress(File output) throws IOException {
+        String extension = output.getName().substring(output.getName().lastIndexOf('.') + 1).toLowerCase(Locale.ROOT);
+        boolean tiff = extension.equals("tif") || extension.equals("tiff");
+        if (!tiff && !extension.equals("qtc")) {
+            throw new IOException("Mode tiled tidak bisa menulis ." + extension
+                + " secara bertahap, gunakan output .qtc atau .tif");
+        }
+        
+        try (ImageInputStream stream = ImageIO.createImageInputStream(input)) {
+            if (stream == null) {
+                throw new IOException("Tidak bisa membuka " + input);
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(stream);
+            if (!readers.hasNext()) {
+                throw new IOException("Format gambar tidak didukung: " + input);
+            }
+            reader = readers.next();
+            reader.setInput(stream, true, true);
+            width = reader.getWidth(0);
+            height = reader.getHeight(0);
+            
+            nodeCount = 0;
+            treeDepth = 0;
+            tileCount = 0;
+            List<Tile> tiles = new ArrayList<>();
+            collectTiles(0, 0, width, height, 1, tiles);
+            if (tiff) {
+                writeTiff(output, extension, tiles);
+            } else {
+                writeNative(output, tiles);
+            }
+        } finally {
+            if (reader != null) {
+                reader.dispose();
+                reader = null;
+            }
+        }
+    }
+    
+    /**
+     * Membangun subtree semua tile per baris tile, lalu menulis pohon lengkap dalam
+     * urutan pre-order. Yang disimpan antar baris hanya pohon ringkas, bukan piksel
+     */
+    private void writeNative(File output, List<Tile> tiles) throws IOException {
+        Map<Tile, CompactQuadTree> subtrees = new HashMap<>();
+        for (List<Tile> row : rowsByTop(tiles).values()) {
+            BufferedImage band = readRow(row);
+            int bandX = row.get(0).x();
+            for (Tile tile : row) {
+                BufferedImage source = band.getSubimage(tile.x() - bandX, 0, tile.width(), tile.height());
+                subtrees.put(tile, CompactQuadTree.fromNode(buildTile(tile, source, null)));
+            }
+        }
+        
+        try (OutputStream stream = new BufferedOutputStream(new FileOutputStream(output), 1 << 16)) {
+            QtcWriter writer = new QtcWriter(stream, width, height, minBlockSize, true);
+            writeNode(writer, 0, 0, width, height, 1, subtrees);
+            writer.finish();
+        }
+    }
+    
+    /**
+     * Menulis node dalam urutan pre-order: node struktural sebagai split, tile sebagai
+     * subtree-nya, yang dilepas setelah ditulis
+     */
+    private void writeNode(QtcWriter writer, int x, int y, int width, int height, int depth,
+                           Map<Tile, CompactQuadTree> subtrees) throws IOException {
+        if (isTile(width, height)) {
+            writer.writeNode(subtrees.remove(new Tile(x, y, width, height, depth)));
+            return;
+        }
+        
+        writer.writeSplit();
+        int westWidth = (width + 1) / 2;
+        int northHeight = (height + 1) / 2;
+        writeNode(writer, x, y, westWidth, northHeight, depth + 1, subtrees);
+        writeNode(writer, x + westWidth, y, width - westWidth, northHeight, depth + 1, subtrees);
+        writeNode(writer, x, y + northHeight, westWidth, height - northHeight, depth + 1, subtrees);
+        writeNode(writer, x + westWidth, y + northHeight, width - westWidth, height - northHeight, depth + 1, subtrees);
+    }
+    
+    /**
+     * Menulis TIFF per strip selebar gambar di antara tepi atas dan bawah tile yang
+     * berurutan. Jika semua tile dalam satu baris sama tinggi, setiap strip adalah satu
+     * baris tile dan leaf langsung digambar ke strip. Tile yang lebih tinggi dari
+     * stripnya dirender sendiri dan barisnya disalin ke strip-strip berikutnya
+     */
+    private void writeTiff(File output, String extension, List<Tile> tiles) throws IOException {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersBySuffix(extension);
+        if (!writers.hasNext()) {
+            throw new IOException("Tidak ada writer untuk format " + extension);
+        }
+        ImageWriter writer = writers.next();
+        
+        TreeMap<Integer, List<Tile>> rows = rowsByTop(tiles);
+        TreeSet<Integer> edges = new TreeSet<>();
+        for (Tile tile : tiles) {
+            edges.add(tile.y());
+            edges.add(tile.y() + tile.height());
+        }
+        
+        output.delete();
+        try (ImageOutputStream stream = ImageIO.createImageOutputStream(output)) {
+            writer.setOutput(stream);
+            if (!writer.canWriteEmpty()) {
+                throw new IOException("Writer " + extension + " tidak mendukung penulisan bertahap");
+            }
+            
+            // replacePixels menulis ulang seluruh strip yang tersentuh, jadi setiap strip
+            // ditulis selebar gambar dengan satu baris piksel per strip TIFF
+            ImageTypeSpecifier type = ImageTypeSpecifier.createFromBufferedImageType(BufferedImage.TYPE_INT_RGB);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            TIFFDirectory directory = TIFFDirectory.createFromMetadata(writer.getDefaultImageMetadata(type, param));
+            directory.addTIFFField(new TIFFField(
+                BaselineTIFFTagSet.getInstance().getTag(BaselineTIFFTagSet.TAG_ROWS_PER_STRIP), 1
+            ));
+            
+            writer.prepareWriteEmpty(null, type, width, height, directory.getAsMetadata(), null, param);
+            if (!writer.canReplacePixels(0)) {
+                throw new IOException("Writer " + extension + " tidak mendukung replacePixels");
+            }
+            writer.prepareReplacePixels(0, new Rectangle(0, 0, width, height));
+            
+            List<Rendered> taller = new ArrayList<>();
+            for (int top = 0; top < height; ) {
+                int bottom = edges.higher(top);
+                BufferedImage strip = new BufferedImage(width, bottom - top, BufferedImage.TYPE_INT_RGB);
+                
+                List<Tile> row = rows.get(top);
+                if (row != null) {
+                    BufferedImage band = readRow(row);
+                    int bandX = row.get(0).x();
+                    for (Tile tile : row) {
+                        BufferedImage source = band.getSubimage(tile.x() - bandX, 0, tile.width(), tile.height());
+                        if (tile.y() + tile.height() == bottom) {
+                            buildTile(tile, source, strip.getSubimage(tile.x(), 0, tile.width(), tile.height()));
+                        } else {
+                            BufferedImage image = new BufferedImage(tile.width(), tile.height(), BufferedImage.TYPE_INT_RGB);
+                            buildTile(tile, source, image);
+                            taller.add(new Rendered(tile, image));
+                        }
+                    }
+                }
+                
+                for (Iterator<Rendered> it = taller.iterator(); it.hasNext(); ) {
+                    Rendered rendered = it.next();
+                    Tile tile = rendered.tile();
+                    strip.getRaster().setRect(tile.x(), 0, rendered.image().getRaster()
+                        .createChild(0, top - tile.y(), tile.width(), bottom - top, 0, 0, null));
+                    if (tile.y() + tile.height() == bottom) {
+                        it.remove();
+                    }
+                }
+                
+                param.setDestinationOffset(new Point(0, top));
+                writer.replacePixels(strip, param);
+                top = bottom;
+            }
+            writer.endReplacePixels();
+            writer.endWriteEmpty();
+        } finally {
+            writer.dispose();
+        }
+    }
+    
+    /**
+     * Mengumpulkan geometri semua tile dalam urutan pre-order tanpa mendekode piksel
+     */
+    private void collectTiles(int x, int y, int width, int height, int depth, List<Tile> tiles) {
+        if (isTile(width, height)) {
+            tiles.add(new Tile(x, y, width, height, depth));
+            return;
+        }
+        
+        nodeCount++;
+        int westWidth = (width + 1) / 2;
+        int northHeight = (height + 1) / 2;
+        collectTiles(x, y, westWidth, northHeight, depth + 1, tiles);
+        collectTiles(x + westWidth, y, width - westWidth, northHeight, depth + 1, tiles);
+        collectTiles(x, y + northHeight, westWidth, height - northHeight, depth + 1, tiles);
+        collectTiles(x + westWidth, y + northHeight, width - westWidth, height - northHeight, depth + 1, tiles);
+    }
+    
+    /**
+     * Mengelompokkan tile menurut tepi atasnya, urut dari atas lalu dari kiri. Tinggi
+     * tile dalam satu kelompok bisa berbeda jika kedalaman tile berbeda
+     */
+    private static TreeMap<Integer, List<Tile>> rowsByTop(List<Tile> tiles) {
+        TreeMap<Integer, List<Tile>> rows = new TreeMap<>();
+        for (Tile tile : tiles) {
+            rows.computeIfAbsent(tile.y(), y -> new ArrayList<>()).add(tile);
+        }
+        for (List<Tile> row : rows.values()) {
+            row.sort(Comparator.comparingInt(Tile::x));
+        }
+        return rows;
+    }
+    
+    /**
+     * Blok yang muat dalam satu tile, atau yang tidak bisa dibagi lagi, diproses sebagai tile
+     */
+    private boolean isTile(int width, int height) {
+        return (width <= tileSize && height <= tileSize) || !QuadTreeNode.isSplittable(width, height, minBlockSize);
+    }
+    
+    /**
+     * Membangun subtree sebuah tile dengan aturan split yang sama seperti mode biasa,
+     * langsung dari piksel tile lewat MomentPyramid, tanpa integral image dan tanpa
+     * salinan gambar. Jika target tidak null, leaf langsung digambar ke target
+     */
+    private QuadTreeNode buildTile(Tile tile, BufferedImage source, BufferedImage target) {
+        PixelBuffer pixels = PixelBuffer.fromImage(source);
+        IncrementalTreeUpdater builder = new IncrementalTreeUpdater(pixels, errorMethod, threshold, minBlockSize);
+        QuadTreeNode subtree = builder.build(pixels, target != null ? new BlockRasterizer(target) : null);
+        
+        nodeCount += ImageProcessor.countNodes(subtree);
+        treeDepth = Math.max(treeDepth, tile.depth() - 1 + ImageProcessor.calculateTreeDepth(subtree));
+        tileCount++;
+        return subtree;
+    }
+    
+    /**
+     * Mendekode satu baris tile sekaligus (satu kali baca untuk format yang didekode
+     * berurutan seperti JPEG), dari tile paling kiri sampai paling kanan setinggi tile
+     * tertinggi. Piksel tile dibaca dari pita dengan x relatif terhadap tile pertama
+     */
+    private BufferedImage readRow(List<Tile> row) throws IOException {
+        Tile first = row.get(0);
+        Tile last = row.get(row.size() - 1);
+        int bandHeight = 0;
+        for (Tile tile : row) {
+            bandHeight = Math.max(bandHeight, tile.height());
+        }
+        return reader.read(0, sourceRegion(first.x(), first.y(), last.x() + last.width() - first.x(), bandHeight));
+    }
+    
+    private ImageReadParam sourceRegion(int x, int y, int width, int height) {
+        ImageReadParam param = reader.getDefaultReadParam();
+        param.setSourceRegion(new Rectangle(x, y, width, height));
+        return param;
+    }
+    
+    public long getNodeCount() {
+        return nodeCount;
+    }
+    
+    public int getTreeDepth() {
+        return treeDepth;
+    }
+    
+    public int getTileCount() {
+        return tileCount;
+    }
+    
+    /**
+     * java TiledCompressor <input> <output.qtc|tif> [--method 1-4] [--threshold T] [--min-block N] [--tile N]
+     */
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.out.println("Penggunaan: java TiledCompressor <input> <output.qtc|tif>");
+            System.out.println("  [--method 1-4] [--threshold T] [--min-block N] [--tile N]");
+            return;
+        }
+        
+        try {
+            int method = ErrorMeasurementImpl.VARIANCE;
+            double threshold = 10;
+            int minBlockSize = 4;
+            int tileSize = DEFAULT_TILE_SIZE;
+            for (int i = 2; i < args.length; i += 2) {
+                if (i + 1 == args.length) {
+                    System.err.println("Error: opsi " + args[i] + " membutuhkan nilai");
+                    return;
+                }
+                String value = args[i + 1];
+                switch (args[i]) {
+                    case "--method" -> method = Integer.parseInt(value);
+                    case "--threshold" -> threshold = Double.parseDouble(value);
+                    case "--min-block" -> minBlockSize = Integer.parseInt(value);
+                    case "--tile" -> tileSize = Integer.parseInt(value);
+                    default -> System.out.println("Warning: opsi tidak dikenal diabaikan: " + args[i]);
+                }
+            }
+            if (method < 1 || method > 4 || threshold < 0 || minBlockSize < 1) {
+                System.err.println("Error: parameter tidak valid");
+                return;
+            }
+            
+            TiledCompressor compressor = new TiledCompressor(new File(args[0]), method, threshold, minBlockSize);
+            compressor.setTileSize(tileSize);
+            long startTime = System.nanoTime();
+            compressor.compress(new File(args[1]));
+            
+            System.out.println("Waktu Eksekusi: " + (System.nanoTime() - startTime) / 1_000_000 + " ms");
+            System.out.println("Jumlah Tile: " + compressor.getTileCount());
+            System.out.println("Kedalaman Pohon: " + compressor.getTreeDepth());
+            System.out.println("Jumlah Nodes: " + compressor.getNodeCount());
+            System.out.println("Compressed image saved to: " + args[1]);
+        } catch (NumberFormatException e) {
+            System.err.println("Error: nilai opsi tidak valid: " + e.getMessage());
+        } catch (IOException e) {
+            System.err.println("Error compressing image: " + e.getMessage());
+        }
+    }
+}
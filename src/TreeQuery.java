@@ -0,0 +1,252 @@
+import java.awt.image.BufferedImage;
+
+/**
+ * Query langsung ke quadtree yang sudah dibangun, tanpa merender seluruh gambar.
+ *
+ * Warna satu titik dicari dengan turun dari root ke leaf yang memuatnya, O(kedalaman).
+ * Banyak titik sekaligus dibagi ke empat kuadran di setiap node, sehingga setiap node
+ * dikunjungi sekali per batch, bukan sekali per titik. Potongan gambar hanya
+ * mengunjungi node yang bersinggungan dengan region dan mengisi bagian leaf yang
+ * masuk ke region. Tersedia untuk QuadTreeNode dan CompactQuadTree
+ */
+public class TreeQuery {
+    private TreeQuery() {
+    }
+    
+    /**
+     * Warna RGB di (x, y) dari pohon QuadTreeNode
+     */
+    public static int colorAt(QuadTreeNode root, int x, int y) {
+        checkPoint(root.getWidth(), root.getHeight(), x, y);
+        QuadTreeNode node = root;
+        while (!node.isLeaf()) {
+            QuadTreeNode northWest = node.getNorthWest();
+            boolean west = x < northWest.getX() + northWest.getWidth();
+            boolean north = y < northWest.getY() + northWest.getHeight();
+            node = north
+                ? (west ? northWest : node.getNorthEast())
+                : (west ? node.getSouthWest() : node.getSouthEast());
+        }
+        return node.getAverageRGB();
+    }
+    
+    /**
+     * Warna RGB di (x, y) dari pohon ringkas
+     */
+    public static int colorAt(CompactQuadTree tree, int x, int y) {
+        checkPoint(tree.getWidth(), tree.getHeight(), x, y);
+        int index = CompactQuadTree.ROOT;
+        int left = 0, top = 0, width = tree.getWidth(), height = tree.getHeight();
+        int child;
+        while ((child = tree.getFirstChild(index)) != CompactQuadTree.NO_CHILD) {
+            // Ukuran anak sama dengan QuadTreeNode.split
+            int westWidth = (width + 1) / 2;
+            int northHeight = (height + 1) / 2;
+            int quadrant = 0;
+            if (x >= left + westWidth) {
+                quadrant += 1;
+                left += westWidth;
+                width -= westWidth;
+            } else {
+                width = westWidth;
+            }
+            if (y >= top + northHeight) {
+                quadrant += 2;
+                top += northHeight;
+                height -= northHeight;
+            } else {
+                height = northHeight;
+            }
+            index = child + quadrant;
+        }
+        return tree.getColor(index);
+    }
+    
+    /**
+     * Warna RGB untuk banyak titik sekaligus, hasil ke-i untuk (xs[i], ys[i])
+     */
+    public static int[] colorsAt(QuadTreeNode root, int[] xs, int[] ys) {
+        int[] order = checkPoints(root.getWidth(), root.getHeight(), xs, ys);
+        int[] colors = new int[xs.length];
+        colorsAt(root, xs, ys, order, 0, order.length, colors);
+        return colors;
+    }
+    
+    /**
+     * Warna RGB untuk banyak titik sekaligus dari pohon ringkas
+     */
+    public static int[] colorsAt(CompactQuadTree tree, int[] xs, int[] ys) {
+        int[] order = checkPoints(tree.getWidth(), tree.getHeight(), xs, ys);
+        int[] colors = new int[xs.length];
+        colorsAt(tree, CompactQuadTree.ROOT, 0, 0, tree.getWidth(), tree.getHeight(), xs, ys, order, 0, order.length, colors);
+        return colors;
+    }
+    
+    private static void colorsAt(QuadTreeNode node, int[] xs, int[] ys, int[] order, int from, int to, int[] colors) {
+        if (from == to) {
+            return;
+        }
+        if (node.isLeaf()) {
+            int rgb = node.getAverageRGB();
+            for (int i = from; i < to; i++) {
+                colors[order[i]] = rgb;
+            }
+            return;
+        }
+        
+        QuadTreeNode northWest = node.getNorthWest();
+        int middleX = northWest.getX() + northWest.getWidth();
+        int middleY = northWest.getY() + northWest.getHeight();
+        int south = partition(order, from, to, ys, middleY);
+        int northEast = partition(order, from, south, xs, middleX);
+        int southEast = partition(order, south, to, xs, middleX);
+        colorsAt(northWest, xs, ys, order, from, northEast, colors);
+        colorsAt(node.getNorthEast(), xs, ys, order, northEast, south, colors);
+        colorsAt(node.getSouthWest(), xs, ys, order, south, southEast, colors);
+        colorsAt(node.getSouthEast(), xs, ys, order, southEast, to, colors);
+    }
+    
+    private static void colorsAt(CompactQuadTree tree, int index, int x, int y, int width, int height,
+                                 int[] xs, int[] ys, int[] order, int from, int to, int[] colors) {
+        if (from == to) {
+            return;
+        }
+        int child = tree.getFirstChild(index);
+        if (child == CompactQuadTree.NO_CHILD) {
+            int rgb = tree.getColor(index);
+            for (int i = from; i < to; i++) {
+                colors[order[i]] = rgb;
+            }
+            return;
+        }
+        
+        int westWidth = (width + 1) / 2;
+        int northHeight = (height + 1) / 2;
+        int south = partition(order, from, to, ys, y + northHeight);
+        int northEast = partition(order, from, south, xs, x + westWidth);
+        int southEast = partition(order, south, to, xs, x + westWidth);
+        colorsAt(tree, child, x, y, westWidth, northHeight, xs, ys, order, from, northEast, colors);
+        colorsAt(tree, child + 1, x + westWidth, y, width - westWidth, northHeight, xs, ys, order, northEast, south, colors);
+        colorsAt(tree, child + 2, x, y + northHeight, westWidth, height - northHeight, xs, ys, order, south, southEast, colors);
+        colorsAt(tree, child + 3, x + westWidth, y + northHeight, width - westWidth, height - northHeight,
+            xs, ys, order, southEast, to, colors);
+    }
+    
+    /**
+     * Menyusun ulang order[from, to) sehingga titik dengan koordinat < limit berada
+     * di depan, dan mengembalikan awal bagian kedua
+     */
+    private static int partition(int[] order, int from, int to, int[] coordinates, int limit) {
+        int split = from;
+        for (int i = from; i < to; i++) {
+            int point = order[i];
+            if (coordinates[point] < limit) {
+                order[i] = order[split];
+                order[split++] = point;
+            }
+        }
+        return split;
+    }
+    
+    /**
+     * Potongan gambar hasil kompresi seukuran region, hanya leaf yang bersinggungan
+     * dengan region yang dikunjungi
+     */
+    public static BufferedImage extractRegion(QuadTreeNode root, int x, int y, int width, int height) {
+        checkRegion(root.getWidth(), root.getHeight(), x, y, width, height);
+        BufferedImage region = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        extractRegion(root, new BlockRasterizer(region), x, y, x + width, y + height);
+        return region;
+    }
+    
+    /**
+     * Potongan gambar hasil kompresi dari pohon ringkas
+     */
+    public static BufferedImage extractRegion(CompactQuadTree tree, int x, int y, int width, int height) {
+        checkRegion(tree.getWidth(), tree.getHeight(), x, y, width, height);
+        BufferedImage region = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        extractRegion(tree, CompactQuadTree.ROOT, 0, 0, tree.getWidth(), tree.getHeight(),
+            new BlockRasterizer(region), x, y, x + width, y + height);
+        return region;
+    }
+    
+    private static void extractRegion(QuadTreeNode node, BlockRasterizer rasterizer,
+                                      int left, int top, int right, int bottom) {
+        int nodeRight = node.getX() + node.getWidth();
+        int nodeBottom = node.getY() + node.getHeight();
+        if (node.getX() >= right || node.getY() >= bottom || nodeRight <= left || nodeBottom <= top) {
+            return;
+        }
+        
+        if (node.isLeaf()) {
+            fillClipped(rasterizer, node.getX(), node.getY(), nodeRight, nodeBottom,
+                left, top, right, bottom, node.getAverageRGB());
+        } else {
+            extractRegion(node.getNorthWest(), rasterizer, left, top, right, bottom);
+            extractRegion(node.getNorthEast(), rasterizer, left, top, right, bottom);
+            extractRegion(node.getSouthWest(), rasterizer, left, top, right, bottom);
+            extractRegion(node.getSouthEast(), rasterizer, left, top, right, bottom);
+        }
+    }
+    
+    private static void extractRegion(CompactQuadTree tree, int index, int x, int y, int width, int height,
+                                      BlockRasterizer rasterizer, int left, int top, int right, int bottom) {
+        if (x >= right || y >= bottom || x + width <= left || y + height <= top) {
+            return;
+        }
+        
+        int child = tree.getFirstChild(index);
+        if (child == CompactQuadTree.NO_CHILD) {
+            fillClipped(rasterizer, x, y, x + width, y + height, left, top, right, bottom, tree.getColor(index));
+            return;
+        }
+        
+        int westWidth = (width + 1) / 2;
+        int northHeight = (height + 1) / 2;
+        extractRegion(tree, child, x, y, westWidth, northHeight, rasterizer, left, top, right, bottom);
+        extractRegion(tree, child + 1, x + westWidth, y, width - westWidth, northHeight,
+            rasterizer, left, top, right, bottom);
+        extractRegion(tree, child + 2, x, y + northHeight, westWidth, height - northHeight,
+            rasterizer, left, top, right, bottom);
+        extractRegion(tree, child + 3, x + westWidth, y + northHeight, width - westWidth, height - northHeight,
+            rasterizer, left, top, right, bottom);
+    }
+    
+    /**
+     * Mengisi bagian leaf [x0, x1) x [y0, y1) yang masuk ke region, dalam koordinat region
+     */
+    private static void fillClipped(BlockRasterizer rasterizer, int x0, int y0, int x1, int y1,
+                                    int left, int top, int right, int bottom, int rgb) {
+        int fromX = Math.max(x0, left);
+        int fromY = Math.max(y0, top);
+        rasterizer.fill(fromX - left, fromY - top, Math.min(x1, right) - fromX, Math.min(y1, bottom) - fromY, rgb);
+    }
+    
+    private static void checkPoint(int width, int height, int x, int y) {
+        if (x < 0 || y < 0 || x >= width || y >= height) {
+            throw new IllegalArgumentException("Titik (" + x + ", " + y + ") di luar gambar " + width + "x" + height);
+        }
+    }
+    
+    /**
+     * Memeriksa semua titik dan mengembalikan urutan awal 0..n-1 untuk dibagi per kuadran
+     */
+    private static int[] checkPoints(int width, int height, int[] xs, int[] ys) {
+        if (xs.length != ys.length) {
+            throw new IllegalArgumentException("Jumlah koordinat x dan y berbeda");
+        }
+        int[] order = new int[xs.length];
+        for (int i = 0; i < order.length; i++) {
+            checkPoint(width, height, xs[i], ys[i]);
+            order[i] = i;
+        }
+        return order;
+    }
+    
+    private static void checkRegion(int width, int height, int x, int y, int regionWidth, int regionHeight) {
+        if (regionWidth < 1 || regionHeight < 1 || x < 0 || y < 0
+                || x + regionWidth > width || y + regionHeight > height) {
+            throw new IllegalArgumentException("Region di luar batas gambar");
+        }
+    }
+}